@@ -0,0 +1,70 @@
+package org.wind57.mp3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * whole files, generated once per trial : the first frame only (header, probe) and a walk over every frame.
+ * files are read through the page cache, so this measures parsing, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBenchmark {
+
+    // names of Mp3Files.Kind, that enum is package-private and the generated code lives in another package
+    @Param({"CBR", "VBR", "ID3"})
+    public String kind;
+
+    @Param({"1", "32", "256"})
+    public int megabytes;
+
+    private Path path;
+    private String file;
+
+    @Setup(Level.Trial)
+    public void create() {
+        path = Mp3Files.create(Mp3Files.Kind.valueOf(kind), megabytes * 1024L * 1024L);
+        file = path.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public int firstHeader() {
+        return FrameProvider.frame(file);
+    }
+
+    @Benchmark
+    public Probe probe() {
+        return FrameProvider.probe(file);
+    }
+
+    @Benchmark
+    public WalkSummary walk() {
+        return FrameWalker.walk(file).summary();
+    }
+
+}
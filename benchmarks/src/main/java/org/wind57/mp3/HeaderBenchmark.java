@@ -0,0 +1,58 @@
+package org.wind57.mp3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.wind57.mp3.AudioVersionIDProvider.AudioIdAndVersion;
+import static org.wind57.mp3.LayerProvider.LayerIdAndVersion;
+
+/**
+ * decoding of a header that is already an int : the numeric tables versus the String providers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HeaderBenchmark {
+
+    private static final int HEADERS = 1024;
+
+    private final int[] headers = Mp3Files.headers(HEADERS);
+
+    @Benchmark
+    @OperationsPerInvocation(HEADERS)
+    public void decode(Blackhole blackhole) {
+        for (int header : headers) {
+            blackhole.consume(HeaderDecoder.kbps(header));
+            blackhole.consume(HeaderDecoder.hz(header));
+            blackhole.consume(HeaderDecoder.frameLength(header));
+            blackhole.consume(HeaderDecoder.samplesPerFrame(header));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HEADERS)
+    public void providers(Blackhole blackhole) {
+        for (int header : headers) {
+            AudioIdAndVersion audio = AudioVersionIDProvider.audio(header);
+            LayerIdAndVersion layer = LayerProvider.layer(header);
+            blackhole.consume(BitrateProvider.bitrate(header, audio.audioVersion(), layer.layerVersion()));
+            blackhole.consume(SampleRateProvider.rate(header, audio.audioVersion()));
+            blackhole.consume(ChannelModeProvider.channel(header));
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.wind57.mp3;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * synthetic MPEG 1 Layer III, 44100 Hz, joint stereo files for the benchmarks.
+ * payloads are random bytes, which is close enough to real audio data for a parser that never decodes it.
+ */
+final class Mp3Files {
+
+    // MPEG 1, Layer III, no CRC, 44100 Hz, joint stereo : 1111_1111_1111_1011_0000_0000_0100_0000
+    private static final int HEADER = 0xFFFB0040;
+
+    // 128 kbps
+    private static final int CBR_BITRATE_INDEX = 9;
+
+    // 64 kbps to 320 kbps
+    private static final int[] VBR_BITRATE_INDEXES = {5, 7, 9, 10, 11, 12, 13, 14};
+
+    // ID3v2 tags with a cover picture are often this big
+    private static final int ID3V2_TAG_SIZE = 256 * 1024;
+
+    enum Kind {
+        CBR,
+        VBR,
+        // CBR, after a big ID3v2 tag
+        ID3
+    }
+
+    static Path create(Kind kind, long size) {
+        try {
+            Path path = Files.createTempFile("mp3-benchmark-" + kind.name().toLowerCase() + "-", ".mp3");
+            SplittableRandom random = new SplittableRandom(57);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+                long written = 0;
+                if (kind == Kind.ID3) {
+                    writeId3v2(out);
+                    written += 10 + ID3V2_TAG_SIZE;
+                }
+
+                byte[] frame = new byte[4096];
+                while (written < size) {
+                    int bitrateIndex = kind == Kind.VBR
+                        ? VBR_BITRATE_INDEXES[random.nextInt(VBR_BITRATE_INDEXES.length)]
+                        : CBR_BITRATE_INDEX;
+                    int header = HEADER | bitrateIndex << 12;
+                    int length = HeaderDecoder.frameLength(header);
+
+                    random.nextBytes(frame);
+                    frame[0] = (byte) (header >>> 24);
+                    frame[1] = (byte) (header >>> 16);
+                    frame[2] = (byte) (header >>> 8);
+                    frame[3] = (byte) header;
+                    out.write(frame, 0, length);
+                    written += length;
+                }
+            }
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static int[] headers(int count) {
+        SplittableRandom random = new SplittableRandom(57);
+        int[] headers = new int[count];
+        for (int i = 0; i < count; i++) {
+            // any bitrate but 'free' and 'bad', any sample rate but 'reserved', and the padding bit
+            headers[i] = HEADER | (1 + random.nextInt(14)) << 12 | random.nextInt(3) << 10 | random.nextInt(2) << 9;
+        }
+        return headers;
+    }
+
+    private static void writeId3v2(OutputStream out) throws IOException {
+        // 'ID3', version 3.0, no flags, syncsafe size
+        out.write(new byte[]{'I', 'D', '3', 3, 0, 0,
+            (byte) (ID3V2_TAG_SIZE >>> 21 & 0x7F), (byte) (ID3V2_TAG_SIZE >>> 14 & 0x7F),
+            (byte) (ID3V2_TAG_SIZE >>> 7 & 0x7F), (byte) (ID3V2_TAG_SIZE & 0x7F)});
+        out.write(new byte[ID3V2_TAG_SIZE]);
+    }
+
+}
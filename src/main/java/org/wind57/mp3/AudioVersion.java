@@ -0,0 +1,11 @@
+package org.wind57.mp3;
+
+/**
+ * 20 and 19 bits of a frame header
+ */
+public enum AudioVersion {
+    V1,
+    V2,
+    V25,
+    RESERVED
+}
@@ -0,0 +1,430 @@
+package org.wind57.mp3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * probes many files in one JVM : every file is handled on its own virtual thread, with at most
+ * 'concurrency' of them in flight. one line per file is written (CSV or JSON lines), a file that
+ * can't be parsed gets a line with its error, and does not stop the others.
+ * <p>
+ * inputs are files, directories (walked for *.mp3) or '@list.txt' (one path per line). a directory or a list
+ * that can't be read gets an error line too.
+ * <p>
+ * files are read with positional reads ({@link ChannelFile}) and not mapped : a virtual thread blocked on a
+ * page fault would keep its carrier thread, and at most as many files as there are carriers would be read at once.
+ * <p>
+ * with 'headTail', files are probed with {@link HeadTailProbe} : a few KB per file are read, however big it is.
+ */
+final class BatchScanner {
+
+    static final int DEFAULT_CONCURRENCY = 64;
+
+    private static final String CSV_HEADER =
+        "path,size,version,layer,kbps,hz,channel,frames,duration_ms,vbr_header,estimated,error";
+
+    enum Format {
+        CSV,
+        JSON
+    }
+
+    private final Format format;
+    private final int concurrency;
+
+    // null when files are always probed
+    private final ProbeCache cache;
+
+    private final boolean headTail;
+    private final LongAdder bytesRead = new LongAdder();
+
+    BatchScanner(Format format, int concurrency, ProbeCache cache, boolean headTail) {
+        this.format = format;
+        this.concurrency = concurrency;
+        this.cache = cache;
+        this.headTail = headTail;
+    }
+
+    /**
+     * [--json] [--concurrency N] [--out report] [--cache store [--cache-capacity N]] [--head-tail] input...
+     */
+    static void run(String[] args) {
+        Format format = Format.CSV;
+        int concurrency = DEFAULT_CONCURRENCY;
+        Path out = null;
+        Path store = null;
+        int capacity = ProbeCache.DEFAULT_CAPACITY;
+        boolean headTail = false;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json" -> format = Format.JSON;
+                case "--concurrency" -> concurrency = Integer.parseInt(argument(args, ++i));
+                case "--out" -> out = Path.of(argument(args, ++i));
+                case "--cache" -> store = Path.of(argument(args, ++i));
+                case "--cache-capacity" -> capacity = Integer.parseInt(argument(args, ++i));
+                case "--head-tail" -> headTail = true;
+                default -> inputs.add(args[i]);
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("--batch needs at least one file, directory or @list");
+        }
+
+        ProbeCache cache = store == null ? null : ProbeCache.load(store, capacity);
+        BatchScanner scanner = new BatchScanner(format, concurrency, cache, headTail);
+        try (PrintWriter writer = writer(out)) {
+            long start = System.nanoTime();
+            Totals totals = scanner.scan(inputs, writer);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf(Locale.ROOT, "%d files, %d errors, %d unreadable directories or lists, %.1f s, %.1f files/s%n",
+                totals.files(), totals.errors(), totals.unreadable(), seconds, totals.files() / seconds);
+            ParserMetrics.Snapshot metrics = ParserMetrics.snapshot();
+            // in probe only runs, that is one header per file
+            System.err.printf(Locale.ROOT, "parser : %.0f headers/s, %.1f MB/s walked, %d resyncs, %d sync failures,"
+                    + " %d reserved, %d bad and %d free bitrate headers rejected%n",
+                metrics.headers() / seconds, metrics.bytes() / seconds / 1e6, metrics.resyncs(), metrics.syncFailures(),
+                metrics.reservedFields(), metrics.badBitrates(), metrics.freeBitrates());
+            if (headTail) {
+                long bytes = scanner.bytesRead.sum();
+                System.err.printf(Locale.ROOT, "head/tail : %d bytes read, %.0f bytes per file%n",
+                    bytes, totals.files() == 0 ? 0.0 : (double) bytes / totals.files());
+            }
+        }
+
+        if (cache != null) {
+            cache.save(store);
+            System.err.printf(Locale.ROOT, "cache : %d hits, %d misses%n", cache.hits(), cache.misses());
+        }
+    }
+
+    /**
+     * @param files      files that got a line, 'errors' of them with an error
+     * @param unreadable directories and lists that could not be read, they got an error line but are not files
+     */
+    record Totals(long files, long errors, long unreadable) {}
+
+    Totals scan(List<String> inputs, PrintWriter writer) {
+        AtomicLong files = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong unreadableInputs = new AtomicLong();
+
+        if (format == Format.CSV) {
+            writer.println(CSV_HEADER);
+        }
+
+        BiConsumer<Path, IOException> unreadable = (path, e) -> {
+            unreadableInputs.incrementAndGet();
+            String line = line(new Result(path.toString(), null, e.getClass().getSimpleName() + ": " + e.getMessage()));
+            synchronized (writer) {
+                writer.println(line);
+            }
+        };
+
+        forEachFile(inputs, concurrency, unreadable, path -> {
+            Result result = probe(path);
+            if (result.error() == null) {
+                files.incrementAndGet();
+            } else {
+                errors.incrementAndGet();
+            }
+            String line = line(result);
+            synchronized (writer) {
+                writer.println(line);
+            }
+        });
+
+        writer.flush();
+        return new Totals(files.get() + errors.get(), errors.get(), unreadableInputs.get());
+    }
+
+    /**
+     * runs 'task' for every file of 'inputs' (see {@link #paths}), each on its own virtual thread, with at most
+     * 'concurrency' of them in flight, and returns once all of them are done.
+     * tasks are expected to handle their own errors : anything one of them throws anyway is not lost in its
+     * Future, the first of those is thrown from here, after the other tasks are done
+     */
+    static void forEachFile(List<String> inputs, int concurrency, BiConsumer<Path, IOException> unreadable,
+                            Consumer<Path> task) {
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        // closing the executor waits for every submitted task
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<Path> paths = paths(inputs, unreadable)) {
+            paths.forEach(path -> {
+                // block here, and not inside the tasks, so that a huge library does not
+                // turn into a huge queue of waiting virtual threads
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        task.accept(path);
+                    } catch (Throwable e) {
+                        thrown.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            });
+        }
+
+        Throwable first = thrown.get();
+        if (first instanceof RuntimeException e) {
+            throw e;
+        }
+        if (first instanceof Error e) {
+            throw e;
+        }
+    }
+
+    /**
+     * @param facts null when the file could not be parsed, 'error' says why
+     */
+    record Result(String path, ProbeCache.Facts facts, String error) {}
+
+    Result probe(Path path) {
+        String file = path.toString();
+        try {
+            if (cache == null) {
+                return new Result(file, facts(file), null);
+            }
+
+            // only the file attributes are read on a hit. an estimate from an earlier head/tail run
+            // is a miss when exact numbers are wanted
+            ProbeCache.Identity identity = ProbeCache.identity(path);
+            ProbeCache.Facts facts = cache.get(file, identity, !headTail);
+            if (facts == null) {
+                facts = facts(file);
+                cache.put(file, identity, facts);
+            }
+            return new Result(file, facts, null);
+        } catch (Throwable e) {
+            // an Error (a StackOverflowError, an OutOfMemoryError on a damaged length) fails this file only.
+            // the head/tail probe fails with the cause wrapped
+            Throwable error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return new Result(file, null, error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+    }
+
+    private ProbeCache.Facts facts(String file) {
+        if (headTail) {
+            // the probe does not block, but this (virtual) thread waits for it, like for any other probe
+            HeadTailProbe.Result result = HeadTailProbe.probe(Path.of(file)).join();
+            bytesRead.add(result.bytesRead());
+            Probe probe = result.probe();
+            VbrHeader.Type vbrType = probe.vbrHeader() == null ? null : probe.vbrHeader().type();
+            return new ProbeCache.Facts(probe.fileSize(), probe.offset(), probe.header(), result.frames(),
+                result.durationMillis(), vbrType, !probe.hasVbrHeader());
+        }
+
+        try (ChannelFile source = ChannelFile.open(file)) {
+            Probe probe = FrameProvider.probe(source, ParseListener.NONE);
+            long frames;
+            long durationMillis;
+            if (probe.hasVbrHeader()) {
+                frames = probe.vbrHeader().frames();
+                durationMillis = probe.vbrHeader().durationMillis(probe.header());
+            } else {
+                WalkSummary summary = FrameWalker.walk(file, source).summary();
+                frames = summary.frames();
+                durationMillis = summary.durationMillis();
+            }
+            VbrHeader.Type vbrType = probe.vbrHeader() == null ? null : probe.vbrHeader().type();
+            return new ProbeCache.Facts(probe.fileSize(), probe.offset(), probe.header(), frames, durationMillis, vbrType,
+                false);
+        }
+    }
+
+    private String line(Result result) {
+        String file = result.path();
+        ProbeCache.Facts facts = result.facts();
+        String error = result.error();
+
+        if (facts == null) {
+            if (format == Format.CSV) {
+                return csv(file) + ",,,,,,,,,,," + csv(error);
+            }
+            return "{\"path\":" + json(file) + ",\"error\":" + json(error) + "}";
+        }
+
+        int header = facts.header();
+        String version = HeaderDecoder.version(header).name();
+        String layer = HeaderDecoder.layer(header).name();
+        int kbps = HeaderDecoder.kbps(header);
+        int hz = HeaderDecoder.hz(header);
+        String channel = ChannelModeProvider.channel(header);
+        String vbrHeader = facts.vbrType() == null ? "" : facts.vbrType().name();
+
+        if (format == Format.CSV) {
+            return String.join(",", csv(file), String.valueOf(facts.size()), version, layer,
+                String.valueOf(kbps), String.valueOf(hz), csv(channel), String.valueOf(facts.frames()),
+                String.valueOf(facts.durationMillis()), vbrHeader, String.valueOf(facts.estimated()), "");
+        }
+
+        return "{\"path\":" + json(file) + ",\"size\":" + facts.size() + ",\"version\":" + json(version)
+            + ",\"layer\":" + json(layer) + ",\"kbps\":" + kbps + ",\"hz\":" + hz
+            + ",\"channel\":" + json(channel) + ",\"frames\":" + facts.frames()
+            + ",\"duration_ms\":" + facts.durationMillis()
+            + ",\"vbr_header\":" + (vbrHeader.isEmpty() ? "null" : json(vbrHeader))
+            + ",\"estimated\":" + facts.estimated() + ",\"error\":null}";
+    }
+
+    /**
+     * the files of 'inputs', lazily. a list or a directory that can't be read goes to 'unreadable'
+     * and is skipped, the rest of the inputs are still walked
+     */
+    static Stream<Path> paths(List<String> inputs, BiConsumer<Path, IOException> unreadable) {
+        return inputs.stream().flatMap(input -> {
+            if (input.startsWith("@")) {
+                Path list = Path.of(input.substring(1));
+                try {
+                    return Files.readAllLines(list).stream()
+                        .map(String::strip)
+                        .filter(line -> !line.isEmpty())
+                        .map(Path::of);
+                } catch (IOException e) {
+                    unreadable.accept(list, e);
+                    return Stream.empty();
+                }
+            }
+            Path path = Path.of(input);
+            if (Files.isDirectory(path)) {
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                    new DirectoryWalk(path, unreadable), Spliterator.ORDERED | Spliterator.NONNULL), false);
+            }
+            return Stream.of(path);
+        });
+    }
+
+    /**
+     * the *.mp3 files under a directory, depth first, like {@link Files#walk} (links to directories are not
+     * followed), but a directory that can't be listed, or is gone by the time it is, does not end the walk
+     */
+    private static final class DirectoryWalk implements Iterator<Path> {
+
+        private final BiConsumer<Path, IOException> unreadable;
+        private final Deque<Path> directories = new ArrayDeque<>();
+        private final Deque<Path> files = new ArrayDeque<>();
+
+        private DirectoryWalk(Path root, BiConsumer<Path, IOException> unreadable) {
+            this.unreadable = unreadable;
+            directories.push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (files.isEmpty() && !directories.isEmpty()) {
+                list(directories.pop());
+            }
+            return !files.isEmpty();
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files.poll();
+        }
+
+        // a whole directory is listed at once, so that only one of them is open at a time
+        private void list(Path directory) {
+            List<Path> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subdirectories.add(entry);
+                    } else if (entry.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mp3")
+                            && Files.isRegularFile(entry)) {
+                        files.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                unreadable.accept(directory, e);
+            } catch (DirectoryIteratorException e) {
+                unreadable.accept(directory, e.getCause());
+            }
+            // the first subdirectory is walked first
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                directories.push(subdirectories.get(i));
+            }
+        }
+    }
+
+    private static PrintWriter writer(Path out) {
+        try {
+            if (out == null) {
+                return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            }
+            return new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * random access to the bytes of a file, by absolute position. big endian, the same way
+ * frame header bytes are laid out in the file.
+ * either the whole file ({@link MappedFile}, {@link ChannelFile}), or only the parts of it that were read
+ * ({@link FileWindow}).
+ */
+interface ByteSource {
+
+    long size();
+
+    byte get(long position);
+
+    int getInt(long position);
+
+    long getLong(long position);
+
+    /**
+     * a read-only view of [position, position + length), nothing is copied. length is at most the
+     * length of a frame
+     */
+    ByteBuffer slice(long position, int length);
+
+}
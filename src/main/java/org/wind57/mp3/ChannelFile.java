@@ -0,0 +1,102 @@
+package org.wind57.mp3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * a whole file, read with positional {@link FileChannel} reads, one window of WINDOW_LENGTH bytes at a time :
+ * a read outside of the current window reads the window that starts there. made for reads that move forward
+ * (probes and walks), like {@link MappedFile}, but a read blocks in a system call and not in a page fault, so
+ * a virtual thread that waits for it does not hold on to its carrier thread.
+ * not thread safe.
+ */
+final class ChannelFile implements ByteSource, AutoCloseable {
+
+    static final int WINDOW_LENGTH = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ByteBuffer buffer = ByteBuffer.allocate(WINDOW_LENGTH);
+    private FileWindow window;
+
+    private ChannelFile(FileChannel channel, long size) {
+        this.channel = channel;
+        this.size = size;
+        this.window = new FileWindow(0, size, buffer.limit(0));
+    }
+
+    static ChannelFile open(String path) {
+        try {
+            FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+            return new ChannelFile(channel, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte get(long position) {
+        return window(position, 1).get(position);
+    }
+
+    @Override
+    public int getInt(long position) {
+        return window(position, 4).getInt(position);
+    }
+
+    @Override
+    public long getLong(long position) {
+        return window(position, 8).getLong(position);
+    }
+
+    /**
+     * a read-only view of [position, position + length), valid until the next read outside of the current window
+     */
+    @Override
+    public ByteBuffer slice(long position, int length) {
+        return window(position, length).slice(position, length);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileWindow window(long position, int length) {
+        if (position >= window.start() && position + length <= window.end()) {
+            return window;
+        }
+        if (position < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("[" + position + ", " + (position + length)
+                + ") is outside of the file [0, " + size + ")");
+        }
+
+        buffer.clear().limit((int) Math.min(WINDOW_LENGTH, size - position));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) == -1) {
+                    throw new EOFException("the file is shorter than " + size + " bytes");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        window = new FileWindow(position, size, buffer.flip());
+        return window;
+    }
+
+}
@@ -0,0 +1,11 @@
+package org.wind57.mp3;
+
+/**
+ * 7 and 6 bits of a frame header, in the order of their values
+ */
+public enum ChannelMode {
+    STEREO,
+    JOINT_STEREO,
+    DUAL_CHANNEL,
+    MONO
+}
@@ -0,0 +1,253 @@
+package org.wind57.mp3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * cuts whole frames out of a file, without decoding anything : the frames are copied as they are, with
+ * {@link FileChannel#transferTo}, so the kernel moves the bytes from one file to the other. frames that
+ * follow each other in the source are copied in one go, junk between frames is left out. tags are not copied.
+ * <p>
+ * optionally, a fresh Xing (VBR) or Info (CBR) frame is written first, with the frames, bytes and seek table
+ * of the clip, so that players show the right duration. the LAME extension (encoder delay and padding) is not.
+ * <p>
+ * a Layer III frame can keep part of its audio in the frames before it (the 'bit reservoir'). the first frame(s)
+ * of a clip can point back into frames that were not copied, decoders play silence (or a short glitch) there,
+ * until the reservoir fills again. clips are frame accurate, not sample accurate.
+ * <p>
+ * where the first frame of a clip is comes from the {@link SeekIndex} of the source, only the frames of the clip
+ * are walked to copy them. the index is built in memory, nothing is written next to the source, unless asked for
+ * with --seek-index : then it is kept in a sidecar (see {@link SeekIndex#loadOrBuild(String)}), and later clips of
+ * the same source do not walk all of it again.
+ */
+final class Clipper {
+
+    // 'Xing' 'Info' as ints
+    private static final int XING = 0x58696E67;
+    private static final int INFO = 0x496E666F;
+
+    // frames, bytes and toc are present
+    private static final int XING_FLAGS = 1 | 2 | 4;
+
+    private static final int XING_TOC_LENGTH = 100;
+
+    // sync, version, layer, sample rate and channel mode of a header, the rest is chosen for the Xing frame
+    // 1111_1111_1111_1110_0000_1100_1100_0000
+    private static final int XING_HEADER_MASK = 0xFFFE0CC0;
+
+    // 16th bit set : no CRC
+    private static final int NO_CRC = 65536;
+
+    /**
+     * --clip in.mp3 from to out.mp3 [--frames] [--xing] [--seek-index]
+     * --split in.mp3 piece directory [--xing]
+     * <p>
+     * times are in milliseconds, or frame numbers with --frames
+     */
+    static void run(String[] args) {
+        List<String> positional = new ArrayList<>();
+        boolean xing = false;
+        boolean frames = false;
+        boolean sidecar = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "--xing" -> xing = true;
+                case "--frames" -> frames = true;
+                case "--seek-index" -> sidecar = true;
+                default -> positional.add(arg);
+            }
+        }
+
+        if ("--clip".equals(positional.get(0)) && positional.size() == 5) {
+            String source = positional.get(1);
+            SeekIndex index = sidecar ? SeekIndex.loadOrBuild(source) : SeekIndex.build(source);
+            long from = Long.parseLong(positional.get(2));
+            long to = Long.parseLong(positional.get(3));
+            int fromFrame = (int) (frames ? from : index.frameOfMillis(from));
+            int toFrame = (int) (frames ? to : index.frameOfMillis(to));
+            WalkSummary clip = clip(source, index, Path.of(positional.get(4)), fromFrame, toFrame, xing);
+            System.err.printf(Locale.ROOT, "%d frames, %d bytes, %d ms%n", clip.frames(), clip.bytes(), clip.durationMillis());
+        } else if ("--split".equals(positional.get(0)) && positional.size() == 4) {
+            List<Path> pieces = split(positional.get(1), Long.parseLong(positional.get(2)), Path.of(positional.get(3)), xing);
+            System.err.printf(Locale.ROOT, "%d pieces%n", pieces.size());
+        } else {
+            throw new IllegalArgumentException("--clip in.mp3 from to out.mp3 [--frames] [--xing] [--seek-index]"
+                + " or --split in.mp3 piece directory [--xing]");
+        }
+    }
+
+    /**
+     * frames [fromFrame, toFrame) of 'source', numbered like {@link FrameTable} numbers them
+     * (the Xing/Info/VBRI frame of the source is not a frame), into 'target'
+     */
+    static WalkSummary clip(String source, Path target, int fromFrame, int toFrame, boolean xing) {
+        return clip(source, SeekIndex.build(source), target, fromFrame, toFrame, xing);
+    }
+
+    // only frames [fromFrame, toFrame) are walked, from where the index says the first one is
+    private static WalkSummary clip(String source, SeekIndex index, Path target, int fromFrame, int toFrame,
+                                    boolean xing) {
+        if (fromFrame < 0 || fromFrame >= toFrame || toFrame > index.frames()) {
+            throw new IllegalArgumentException("frames [" + fromFrame + ", " + toFrame + ") are not inside of [0, "
+                + index.frames() + ")");
+        }
+        FrameTable table;
+        // the walk stops after toFrame, closing the walker is what gets it counted
+        try (FrameWalker walker = FrameWalker.walk(source)) {
+            table = FrameTable.of(walker.iterator(index.offsetOfFrame(fromFrame)), toFrame - fromFrame);
+        }
+        if (table.frames() != toFrame - fromFrame) {
+            throw new IllegalStateException(source + " changed since its seek index was built");
+        }
+        return clip(source, table, target, 0, table.frames(), xing);
+    }
+
+    /**
+     * cuts 'source' into clips of 'pieceMillis' each (the last one can be shorter), named after the source :
+     * 'song.mp3' becomes 'song-001.mp3', 'song-002.mp3' ... in 'directory'
+     */
+    static List<Path> split(String source, long pieceMillis, Path directory, boolean xing) {
+        FrameTable table = FrameTable.build(source);
+        int pieceFrames = Math.max(1, frameAt(table, pieceMillis));
+        String name = Path.of(source).getFileName().toString();
+        String base = name.toLowerCase(Locale.ROOT).endsWith(".mp3") ? name.substring(0, name.length() - 4) : name;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Path> pieces = new ArrayList<>();
+        for (int from = 0; from < table.frames(); from += pieceFrames) {
+            Path piece = directory.resolve(String.format(Locale.ROOT, "%s-%03d.mp3", base, pieces.size() + 1));
+            clip(source, table, piece, from, Math.min(from + pieceFrames, table.frames()), xing);
+            pieces.add(piece);
+        }
+        return pieces;
+    }
+
+    // the frame that plays at 'millis', all frames are taken to have the sample rate of the first one
+    static int frameAt(FrameTable table, long millis) {
+        if (table.frames() == 0) {
+            return 0;
+        }
+        int header = table.header(0);
+        long frame = Math.max(0, millis) * HeaderDecoder.hz(header) / (HeaderDecoder.samplesPerFrame(header) * 1000L);
+        return (int) Math.min(frame, table.frames());
+    }
+
+    private static WalkSummary clip(String source, FrameTable table, Path target, int fromFrame, int toFrame,
+                                    boolean xing) {
+        if (fromFrame < 0 || fromFrame >= toFrame || toFrame > table.frames()) {
+            throw new IllegalArgumentException("frames [" + fromFrame + ", " + toFrame + ") are not inside of [0, "
+                + table.frames() + ")");
+        }
+
+        try (FileChannel in = FileChannel.open(Path.of(source), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            if (xing) {
+                ByteBuffer frame = xingFrame(table, fromFrame, toFrame);
+                while (frame.hasRemaining()) {
+                    out.write(frame);
+                }
+            }
+
+            // one transfer for every run of frames that follow each other in the source
+            long runStart = table.offset(fromFrame);
+            long runEnd = runStart;
+            for (int i = fromFrame; i < toFrame; i++) {
+                long offset = table.offset(i);
+                if (offset != runEnd) {
+                    transfer(in, runStart, runEnd - runStart, out);
+                    runStart = offset;
+                }
+                runEnd = offset + table.size(i);
+            }
+            transfer(in, runStart, runEnd - runStart, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new WalkSummary(toFrame - fromFrame, table.bytes(fromFrame, toFrame),
+            table.durationMillis(fromFrame, toFrame), 0, 0);
+    }
+
+    // transferTo can move less than it was asked for, and nothing at all past the end of the source
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        while (count > 0) {
+            long transferred = in.transferTo(position, count, out);
+            if (transferred == 0) {
+                throw new EOFException("the source ends before " + (position + count) + ", it was cut short");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    /**
+     * a silent Layer III frame with a Xing (or Info, when every frame has the same bitrate) header, for
+     * frames [fromFrame, toFrame). it has the version, sample rate and channel mode of the first frame,
+     * and the lowest bitrate that makes it big enough for the header
+     */
+    private static ByteBuffer xingFrame(FrameTable table, int fromFrame, int toFrame) {
+        int first = table.header(fromFrame);
+        if (HeaderDecoder.layer(first) != LayerVersion.L3) {
+            throw new IllegalArgumentException("a Xing header can only be written for Layer III, not " + HeaderDecoder.layer(first));
+        }
+
+        int sideInformation = VbrHeaderProvider.sideInformationLength(first);
+        // header, side information, id, flags, frames, bytes, toc
+        int needed = 4 + sideInformation + 4 + 4 + 4 + 4 + XING_TOC_LENGTH;
+        int header = 0;
+        int length = 0;
+        for (int bitrate = 1; bitrate < 15 && length < needed; bitrate++) {
+            header = (first & XING_HEADER_MASK) | NO_CRC | bitrate << 12;
+            length = HeaderDecoder.frameLength(header);
+        }
+        if (length < needed) {
+            throw new IllegalStateException("no bitrate makes a frame big enough for a Xing header");
+        }
+
+        int frames = toFrame - fromFrame;
+        long bytes = length + table.bytes(fromFrame, toFrame);
+
+        boolean vbr = false;
+        for (int i = fromFrame + 1; i < toFrame && !vbr; i++) {
+            vbr = HeaderDecoder.kbps(table.header(i)) != HeaderDecoder.kbps(first);
+        }
+
+        // entry i : where (as a fraction of 'bytes', out of 256) the frame at i% of the clip starts
+        byte[] toc = new byte[XING_TOC_LENGTH];
+        long position = length;
+        int entry = 0;
+        for (int i = 0; i < frames && entry < XING_TOC_LENGTH; i++) {
+            while (entry < XING_TOC_LENGTH && (long) entry * frames / XING_TOC_LENGTH == i) {
+                toc[entry++] = (byte) Math.min(255, position * 256 / bytes);
+            }
+            position += table.size(fromFrame + i);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        frame.putInt(header);
+        frame.position(4 + sideInformation);
+        frame.putInt(vbr ? XING : INFO);
+        frame.putInt(XING_FLAGS);
+        frame.putInt(frames);
+        frame.putInt((int) bytes);
+        frame.put(toc);
+        return frame.clear();
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * checks the CRC-16 that follows the header of frames with the protection bit cleared (bit 16 == 0).
+ * the CRC covers the last 2 bytes of the header and the side information (Layer III) or the bit allocation
+ * (Layer I) : polynomial 0x8005, starting at 0xFFFF, most significant bit first.
+ * <p>
+ * table driven, 4 bytes at a time ("slice-by-4"), so it is cheap enough to run on every frame of a walk.
+ * Layer II is not checked : the protected part depends on bit allocation tables, it needs a decoder.
+ */
+final class CrcVerifier {
+
+    static final int CRC_ABSENT = 0;
+    static final int CRC_OK = 1;
+    static final int CRC_MISMATCH = 2;
+    static final int CRC_UNCHECKED = 3;
+
+    private static final int POLYNOMIAL = 0x8005;
+    private static final int INITIAL = 0xFFFF;
+
+    // T0 is the usual byte at a time table, Tk is the effect of a byte followed by k zero bytes
+    private static final int[] T0 = new int[256];
+    private static final int[] T1 = new int[256];
+    private static final int[] T2 = new int[256];
+    private static final int[] T3 = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+            }
+            T0[i] = crc & 0xFFFF;
+        }
+        for (int i = 0; i < 256; i++) {
+            T1[i] = next(T0[i]);
+            T2[i] = next(T1[i]);
+            T3[i] = next(T2[i]);
+        }
+    }
+
+    /**
+     * @param frame positioned on the header, with at least the header, the CRC and the protected bytes remaining
+     */
+    static int check(ByteBuffer frame) {
+        int position = frame.position();
+        int header = frame.getInt(position);
+        if (!HeaderDecoder.crcProtected(header)) {
+            return CRC_ABSENT;
+        }
+
+        int protectedLength = protectedLength(header);
+        if (protectedLength == -1) {
+            return CRC_UNCHECKED;
+        }
+        if (frame.remaining() < 6 + protectedLength) {
+            return CRC_MISMATCH;
+        }
+
+        // the last 2 bytes of the header, then whatever follows the CRC
+        int crc = T1[((INITIAL >>> 8) ^ (header >>> 8)) & 0xFF] ^ T0[(INITIAL ^ header) & 0xFF];
+        crc = crc16(crc, frame, position + 6, protectedLength);
+
+        int expected = Short.toUnsignedInt(frame.getShort(position + 4));
+        return crc == expected ? CRC_OK : CRC_MISMATCH;
+    }
+
+    static int crc16(int crc, ByteBuffer data, int from, int length) {
+        int i = from;
+        int end = from + length;
+        for (; i + 4 <= end; i += 4) {
+            int word = data.getInt(i);
+            crc = T3[((crc >>> 8) ^ (word >>> 24)) & 0xFF]
+                ^ T2[(crc ^ (word >>> 16)) & 0xFF]
+                ^ T1[(word >>> 8) & 0xFF]
+                ^ T0[word & 0xFF];
+        }
+        for (; i < end; i++) {
+            crc = ((crc << 8) & 0xFFFF) ^ T0[((crc >>> 8) ^ data.get(i)) & 0xFF];
+        }
+        return crc;
+    }
+
+    // bytes after the CRC that it covers, -1 when that can't be known from the header alone
+    private static int protectedLength(int header) {
+        return switch (HeaderDecoder.layer(header)) {
+            case L3 -> VbrHeaderProvider.sideInformationLength(header);
+            case L1 -> layerOneAllocationLength(header);
+            case L2, RESERVED -> -1;
+        };
+    }
+
+    // 4 bits of bit allocation per subband (32 of them) and per channel. in joint stereo, subbands
+    // from the 'bound' up are shared by both channels, the bound comes from the mode extension (5 and 4 bits)
+    private static int layerOneAllocationLength(int header) {
+        int bits = switch (HeaderDecoder.channelMode(header)) {
+            case 3 -> 32 * 4;
+            case 1 -> {
+                int bound = (((header >>> 4) & 3) + 1) * 4;
+                yield (bound * 2 + (32 - bound)) * 4;
+            }
+            default -> 32 * 2 * 4;
+        };
+        return bits / 8;
+    }
+
+    private static int next(int entry) {
+        return ((entry << 8) & 0xFFFF) ^ T0[entry >>> 8];
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.wind57.mp3;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * fingerprints many files (see {@link Fingerprinter}) in one pass, each on its own virtual thread like
+ * {@link BatchScanner} does, and reports the files with the same audio and those that share part of it.
+ */
+final class DuplicateFinder {
+
+    // blocks two files must share before they are reported as overlapping
+    static final int DEFAULT_MIN_SHARED_BLOCKS = 2;
+
+    /**
+     * [--blocks N] [--min-shared N] [--concurrency N] input...
+     */
+    static void run(String[] args) {
+        int blockFrames = Fingerprinter.DEFAULT_BLOCK_FRAMES;
+        int minShared = DEFAULT_MIN_SHARED_BLOCKS;
+        int concurrency = BatchScanner.DEFAULT_CONCURRENCY;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--blocks" -> blockFrames = Integer.parseInt(BatchScanner.argument(args, ++i));
+                case "--min-shared" -> minShared = Integer.parseInt(BatchScanner.argument(args, ++i));
+                case "--concurrency" -> concurrency = Integer.parseInt(BatchScanner.argument(args, ++i));
+                default -> inputs.add(args[i]);
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("--dedupe needs at least one file, directory or @list");
+        }
+
+        FingerprintIndex index = new FingerprintIndex();
+        LongAdder files = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        int blocks = blockFrames;
+        BiConsumer<Path, Throwable> failed = (path, e) -> {
+            errors.increment();
+            System.err.println(path + " : " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        };
+
+        long start = System.nanoTime();
+        BatchScanner.forEachFile(inputs, concurrency, failed::accept, path -> {
+            try {
+                String file = path.toString();
+                Fingerprint fingerprint = Fingerprinter.of(file, blocks);
+                if (fingerprint.frames() == 0) {
+                    errors.increment();
+                    System.err.println(file + " : no audio frames");
+                    return;
+                }
+                index.add(file, fingerprint);
+                files.increment();
+                bytes.add(path.toFile().length());
+            } catch (RuntimeException | Error e) {
+                failed.accept(path, e);
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (List<String> duplicate : index.duplicates()) {
+            System.out.println("same audio : " + String.join(", ", duplicate));
+        }
+        for (FingerprintIndex.Overlap overlap : index.overlaps(minShared)) {
+            System.out.println("overlap    : " + overlap.first() + ", " + overlap.second()
+                + " (" + overlap.sharedBlocks() + " blocks)");
+        }
+
+        System.err.printf(Locale.ROOT, "%d files, %d errors, %.1f s, %.1f files/s, %.1f MB/s%n",
+            files.sum(), errors.sum(), seconds, files.sum() / seconds, bytes.sum() / seconds / 1e6);
+    }
+
+}
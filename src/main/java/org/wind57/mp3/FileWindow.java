@@ -0,0 +1,62 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * the bytes [start, start + bytes.limit()) of a file of 'size' bytes, addressed by their position in that file.
+ * anything outside of the window was not read, asking for it fails.
+ */
+final class FileWindow implements ByteSource {
+
+    private final long start;
+    private final long size;
+    private final ByteBuffer bytes;
+
+    FileWindow(long start, long size, ByteBuffer bytes) {
+        this.start = start;
+        this.size = size;
+        this.bytes = bytes;
+    }
+
+    long start() {
+        return start;
+    }
+
+    long end() {
+        return start + bytes.limit();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte get(long position) {
+        return bytes.get(index(position, 1));
+    }
+
+    @Override
+    public int getInt(long position) {
+        return bytes.getInt(index(position, 4));
+    }
+
+    @Override
+    public long getLong(long position) {
+        return bytes.getLong(index(position, 8));
+    }
+
+    @Override
+    public ByteBuffer slice(long position, int length) {
+        return bytes.slice(index(position, length), length).asReadOnlyBuffer();
+    }
+
+    private int index(long position, int length) {
+        if (position < start || position + length > end()) {
+            throw new IndexOutOfBoundsException("[" + position + ", " + (position + length)
+                + ") is outside of the window [" + start + ", " + end() + ")");
+        }
+        return (int) (position - start);
+    }
+
+}
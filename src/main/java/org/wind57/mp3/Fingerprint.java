@@ -0,0 +1,10 @@
+package org.wind57.mp3;
+
+/**
+ * what the audio of a file hashes to, see {@link Fingerprinter}
+ *
+ * @param hash   of every audio frame payload, in order
+ * @param frames audio frames that were hashed
+ * @param blocks hash of every block of frames, in order, empty when blocks were not asked for
+ */
+record Fingerprint(long hash, long frames, long[] blocks) {}
@@ -0,0 +1,141 @@
+package org.wind57.mp3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * fingerprints of many files, in memory : which files have the same audio, and which share part of it.
+ * safe to use from many threads.
+ * <p>
+ * files get dense int ids, everything else is primitive arrays and {@link LongIntMap}s : a block of a file costs
+ * one posting (two ints), and a block hash one map slot, no object per block.
+ */
+final class FingerprintIndex {
+
+    // a block that is in more files than this says nothing about them (digital silence, a jingle ...)
+    static final int MAX_FILES_PER_BLOCK = 16;
+
+    /**
+     * @param sharedBlocks blocks that are in both files
+     */
+    record Overlap(String first, String second, int sharedBlocks) {}
+
+    // by file id
+    private final List<String> paths = new ArrayList<>();
+    private long[] hashes = new long[16];
+    // the file before this one with the same audio, -1 for the first one
+    private int[] sameAudio = new int[16];
+
+    // audio hash -> the last file with that audio
+    private final LongIntMap byHash = new LongIntMap();
+
+    // block hash -> its slot. per slot : files it is in (not more than MAX_FILES_PER_BLOCK + 1 : past that it
+    // is too common), and its last posting
+    private final LongIntMap byBlock = new LongIntMap();
+    private int[] blockFiles = new int[16];
+    private int[] blockPostings = new int[16];
+
+    // per posting : a file the block is in, and the posting of the same block before it, -1 for the first one
+    private int[] postingFiles = new int[16];
+    private int[] postingNext = new int[16];
+    private int postings;
+
+    synchronized void add(String path, Fingerprint fingerprint) {
+        int id = paths.size();
+        paths.add(path);
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            sameAudio = Arrays.copyOf(sameAudio, id * 2);
+        }
+        hashes[id] = fingerprint.hash();
+        int previous = byHash.get(fingerprint.hash());
+        sameAudio[id] = previous;
+        byHash.put(fingerprint.hash(), id);
+
+        for (long block : fingerprint.blocks()) {
+            int slot = byBlock.get(block);
+            if (slot == LongIntMap.MISSING) {
+                slot = byBlock.size();
+                byBlock.put(block, slot);
+                if (slot == blockFiles.length) {
+                    blockFiles = Arrays.copyOf(blockFiles, slot * 2);
+                    blockPostings = Arrays.copyOf(blockPostings, slot * 2);
+                }
+                blockFiles[slot] = 0;
+                blockPostings[slot] = -1;
+            }
+
+            int last = blockPostings[slot];
+            // the same block twice in one file counts once
+            if (blockFiles[slot] <= MAX_FILES_PER_BLOCK && (last == -1 || postingFiles[last] != id)) {
+                if (postings == postingFiles.length) {
+                    postingFiles = Arrays.copyOf(postingFiles, postings * 2);
+                    postingNext = Arrays.copyOf(postingNext, postings * 2);
+                }
+                postingFiles[postings] = id;
+                postingNext[postings] = last;
+                blockPostings[slot] = postings++;
+                blockFiles[slot]++;
+            }
+        }
+    }
+
+    /**
+     * groups of two or more files with the same audio
+     */
+    synchronized List<List<String>> duplicates() {
+        List<List<String>> duplicates = new ArrayList<>();
+        byHash.forEach((hash, last) -> {
+            if (sameAudio[last] != -1) {
+                List<String> group = new ArrayList<>();
+                for (int id = last; id != -1; id = sameAudio[id]) {
+                    group.add(paths.get(id));
+                }
+                // in the order they were added
+                duplicates.add(List.copyOf(group.reversed()));
+            }
+        });
+        return duplicates;
+    }
+
+    /**
+     * pairs of files that share at least 'minSharedBlocks' blocks, but do not have the same audio
+     */
+    synchronized List<Overlap> overlaps(int minSharedBlocks) {
+        // (smaller id << 32 | bigger id) -> shared blocks
+        LongIntMap shared = new LongIntMap();
+        int[] files = new int[MAX_FILES_PER_BLOCK];
+        for (int slot = 0; slot < byBlock.size(); slot++) {
+            if (blockFiles[slot] < 2 || blockFiles[slot] > MAX_FILES_PER_BLOCK) {
+                continue;
+            }
+            int count = 0;
+            for (int posting = blockPostings[slot]; posting != -1; posting = postingNext[posting]) {
+                files[count++] = postingFiles[posting];
+            }
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    int first = Math.min(files[i], files[j]);
+                    int second = Math.max(files[i], files[j]);
+                    if (hashes[first] != hashes[second]) {
+                        shared.add((long) first << 32 | second, 1);
+                    }
+                }
+            }
+        }
+
+        List<Overlap> overlaps = new ArrayList<>();
+        shared.forEach((pair, blocks) -> {
+            if (blocks >= minSharedBlocks) {
+                String first = paths.get((int) (pair >>> 32));
+                String second = paths.get((int) pair);
+                overlaps.add(first.compareTo(second) < 0
+                    ? new Overlap(first, second, blocks)
+                    : new Overlap(second, first, blocks));
+            }
+        });
+        return overlaps;
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * hashes the audio of a file, and nothing else : frame headers, tags, junk and the Xing/Info/VBRI frame
+ * are left out, so the same audio with other (or no) tags gets the same fingerprint. nothing is decoded.
+ * <p>
+ * the payload of every frame is hashed on its own (XXH64), the fingerprint is the XXH64 of those frame hashes,
+ * in order. it is built a frame at a time, from a walk ({@link #of(String, int)}) or from a stream, as a
+ * {@link StreamParser.FrameListener}. both give the same fingerprint, unless the file has junk or truncated frames
+ * between its frames : the stream parser does not look ahead once it is locked, the walk does.
+ * <p>
+ * blocks catch files that share only part of their audio (a clip, an edit with an intro). a block ends after
+ * a frame whose hash has its lowest log2(blockFrames) bits at zero, so blocks are ~blockFrames long and,
+ * since where they end depends only on the audio, two files that share a run of frames share the blocks inside
+ * that run, wherever it starts. not thread safe, one instance per file.
+ */
+final class Fingerprinter implements StreamParser.FrameListener {
+
+    // ~13 seconds of 44.1 kHz Layer III
+    static final int DEFAULT_BLOCK_FRAMES = 512;
+
+    // a block that never meets a frame hash that ends it (a long run of the same frame) is cut here
+    private static final int MAX_BLOCK_FACTOR = 4;
+
+    private final XxHash64 frameHash = new XxHash64();
+    private final XxHash64 audioHash = new XxHash64();
+    private final XxHash64 blockHash = new XxHash64();
+
+    // 0 when there are no blocks
+    private final int blockFrames;
+    private final long blockMask;
+
+    private long frames;
+    private boolean first = true;
+    private long[] blocks = new long[16];
+    private int blockCount;
+    private int framesInBlock;
+
+    /**
+     * @param blockFrames rounded down to a power of two, 0 for no blocks
+     */
+    Fingerprinter(int blockFrames) {
+        this.blockFrames = blockFrames <= 0 ? 0 : Integer.highestOneBit(blockFrames);
+        this.blockMask = this.blockFrames - 1;
+    }
+
+    /**
+     * the file is read through a {@link ChannelFile}, not mapped : a library is fingerprinted a file after the other
+     * (on many threads), and mappings of files that were already hashed would pile up until they are collected.
+     * a payload is only valid until the next read of the file, it is hashed right away
+     */
+    static Fingerprint of(String path, int blockFrames) {
+        Fingerprinter fingerprinter = new Fingerprinter(blockFrames);
+        try (ChannelFile file = ChannelFile.open(path); FrameWalker walker = FrameWalker.walk(path, file)) {
+            boolean first = true;
+            for (Frame frame : walker) {
+                if (first) {
+                    first = false;
+                    if (walker.isVbrHeader(frame)) {
+                        continue;
+                    }
+                }
+                fingerprinter.payload(walker.payload(frame));
+            }
+        }
+        return fingerprinter.fingerprint();
+    }
+
+    @Override
+    public void onFrame(long offset, int header, ByteBuffer frame) {
+        if (first) {
+            first = false;
+            FileWindow window = new FileWindow(offset, offset + frame.remaining(), frame.slice());
+            if (VbrHeaderProvider.vbr(window, offset, header, frame.remaining()) != null) {
+                return;
+            }
+        }
+        payload(frame.slice(frame.position() + 4, frame.remaining() - 4));
+    }
+
+    /**
+     * the bytes of a frame that follow its header
+     */
+    void payload(ByteBuffer payload) {
+        frameHash.reset();
+        frameHash.update(payload);
+        long hash = frameHash.digest();
+
+        audioHash.update(hash);
+        frames++;
+
+        if (blockFrames != 0) {
+            blockHash.update(hash);
+            framesInBlock++;
+            if ((hash & blockMask) == 0 || framesInBlock == blockFrames * MAX_BLOCK_FACTOR) {
+                endBlock();
+            }
+        }
+    }
+
+    /**
+     * the fingerprint of the frames seen so far, the last block ends here
+     */
+    Fingerprint fingerprint() {
+        if (framesInBlock > 0) {
+            endBlock();
+        }
+        return new Fingerprint(audioHash.digest(), frames, Arrays.copyOf(blocks, blockCount));
+    }
+
+    private void endBlock() {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        blocks[blockCount++] = blockHash.digest();
+        blockHash.reset();
+        framesInBlock = 0;
+    }
+
+}
@@ -0,0 +1,12 @@
+package org.wind57.mp3;
+
+/**
+ * where a frame starts in the file, its 4 header bytes as an int and its length (header included)
+ */
+public record Frame(long offset, int header, int length) {
+
+    public FrameHeader frameHeader() {
+        return new FrameHeader(header);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.wind57.mp3;
+
+/**
+ * the 4 bytes of a frame header, with every field decoded to a number or an enum.
+ * nothing is computed up front, every accessor is a shift and (at most) a table lookup.
+ *
+ * @param bits the header as it is in the file, big endian
+ */
+public record FrameHeader(int bits) {
+
+    private static final ChannelMode[] CHANNEL_MODES = ChannelMode.values();
+
+    /**
+     * frame sync is set and every field that is needed to compute the frame length is usable
+     */
+    public boolean isValid() {
+        return FrameProvider.hasFrameSync(bits) && HeaderDecoder.frameLength(bits) != 0;
+    }
+
+    public AudioVersion version() {
+        return HeaderDecoder.version(bits);
+    }
+
+    public LayerVersion layer() {
+        return HeaderDecoder.layer(bits);
+    }
+
+    /**
+     * 0 for 'free', -1 for 'bad' or when version / layer are 'reserved'
+     */
+    public int bitrateKbps() {
+        return HeaderDecoder.kbps(bits);
+    }
+
+    /**
+     * -1 for 'reserved'
+     */
+    public int sampleRateHz() {
+        return HeaderDecoder.hz(bits);
+    }
+
+    public ChannelMode channelMode() {
+        return CHANNEL_MODES[HeaderDecoder.channelMode(bits)];
+    }
+
+    public boolean padded() {
+        return HeaderDecoder.padding(bits) == 1;
+    }
+
+    public boolean crcProtected() {
+        return HeaderDecoder.crcProtected(bits);
+    }
+
+    /**
+     * bytes, header included, 0 when it can't be computed
+     */
+    public int frameLength() {
+        return HeaderDecoder.frameLength(bits);
+    }
+
+    public int samplesPerFrame() {
+        return HeaderDecoder.samplesPerFrame(bits);
+    }
+
+}
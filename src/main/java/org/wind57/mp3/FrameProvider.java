@@ -1,11 +1,5 @@
 package org.wind57.mp3;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-
 final class FrameProvider {
 
     // 31 to 21 bits are set, the rest are zeros,
@@ -13,57 +7,68 @@ final class FrameProvider {
     private static final int FRAME_SYNC_MASK = -2097152;
 
     static int frame(String path) {
-        // get the file
-        try (FileInputStream stream = new FileInputStream(path)) {
-            FileChannel channel = stream.getChannel();
-            ByteBuffer buffer = ByteBuffer.allocate(4);
-            int bytesRead = channel.read(buffer);
-            if (bytesRead != 4) {
-                throw new RuntimeException("corrupt mp3? cant read 4 bytes frame header");
-            }
+        return frame(path, ParseListener.NONE);
+    }
 
-            // these are the 4 bytes of the frame header
-            byte[] frameBytes = buffer.array();
+    static int frame(String path, ParseListener listener) {
+        // the first frame is rarely at byte 0 : skip ID3v2 tag(s) and any junk before the audio.
+        // only the head of the file is read, no need to map all of it
+        try (ChannelFile file = ChannelFile.open(path)) {
+            long audioStart = SyncScanner.audioStart(file);
+            long firstFrame = SyncScanner.nextSync(file, audioStart);
 
-            // this will keep each byte shifted into its position, stored as an int
-            // next comment will explain this more
-            int[] frameBytesAsInt = new int[4];
+            // nothing found, let validateFrameSync complain about what is at the start of the audio
+            long position = firstFrame == -1 ? audioStart : firstFrame;
+            if (position + 4 > file.size()) {
+                throw new RuntimeException("corrupt mp3? cant read 4 bytes frame header");
+            }
 
-            // take each byte unsigned and shift it into its position.
-            // for example if we read:
-            // 255 = 1111_1111
-            // 215 = 1111_1011
-            // 208 = 1101_0000
-            // 196 = 1100_0100
-            // we need to shift each of them in a correct position (this is frameBytesAsInt), so
-            // 1111_1111_0000_0000_0000_0000_0000_0000 (255 shifted 24 times)
-            // 0000_0000_1111_1011_0000_0000_0000_0000 (215 shifted 16 times)
-            // 0000_0000_0000_0000_1101_0000_0000_0000 (208 shifted  8 times)
-            // 0000_0000_0000_0000_0000_0000_1100_0100 (196 shifted  0 times)
+            // the 4 bytes of the frame header, big endian : the first byte ends up in bits 31 to 24
+            int frame = file.getInt(position);
 
-            for (int i = 0; i < bytesRead; i++) {
-                int x = Byte.toUnsignedInt(frameBytes[i]);
-                System.out.println();
-                frameBytesAsInt[i] = x << (24 - i * 8);
-            }
+            validateFrameSync(frame);
+            listener.onFirstFrame(position, frame);
+            return frame;
+        }
+    }
 
-            // do an OR operation on all parts, and this will get us the frame header as bits
-            int frame = 0;
-            for (int j : frameBytesAsInt) {
-                frame |= j;
-            }
+    /**
+     * first frame only : its header and the Xing/Info/VBRI header it might carry.
+     * only the tag headers and the first few frames are ever read.
+     */
+    static Probe probe(String path) {
+        return probe(path, ParseListener.NONE);
+    }
 
-            System.out.println("frame header as bits : " + Integer.toBinaryString(frame));
-            return validateFrameSync(frame);
+    static Probe probe(String path, ParseListener listener) {
+        try (ChannelFile file = ChannelFile.open(path)) {
+            return probe(file, listener);
+        }
+    }
 
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    static Probe probe(ByteSource file, ParseListener listener) {
+        long start = System.nanoTime();
+        long offset = SyncScanner.nextSync(file, SyncScanner.audioStart(file));
+        if (offset == -1) {
+            ParserMetrics.syncFailure();
+            throw new RuntimeException("Invalid mp3, 'no frame sync found'");
         }
+
+        int header = file.getInt(offset);
+        listener.onFirstFrame(offset, header);
+        VbrHeader vbrHeader = VbrHeaderProvider.vbr(file, offset, header, HeaderDecoder.frameLength(header));
+        ParserMetrics.probed(System.nanoTime() - start);
+        return new Probe(file.size(), offset, header, vbrHeader);
     }
 
     // 31 - 21 bits of a frame header must be set
+    static boolean hasFrameSync(int frame) {
+        return (frame & FRAME_SYNC_MASK) == FRAME_SYNC_MASK;
+    }
+
     private static int validateFrameSync(int frame) {
-        if ((frame & FRAME_SYNC_MASK) != FRAME_SYNC_MASK) {
+        if (!hasFrameSync(frame)) {
+            ParserMetrics.syncFailure();
             throw new RuntimeException("Invalid mp3, 'frame sync mask not set correctly'");
         }
         return frame;
@@ -0,0 +1,261 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.wind57.mp3.FrameProvider.hasFrameSync;
+import static org.wind57.mp3.HeaderDecoder.frameLength;
+import static org.wind57.mp3.HeaderDecoder.hz;
+import static org.wind57.mp3.HeaderDecoder.samplesPerFrame;
+
+/**
+ * walks a whole file frame by frame: it reads a header, computes the length of that frame
+ * and jumps straight to the next header. payload bytes are never read or copied, they can
+ * be looked at (zero-copy) via {@link #payload(Frame)}.
+ * the walk starts after the ID3v2 tag(s). when a position does not hold a valid header
+ * (junk, a truncated frame), it resynchronises on the next confirmed frame, see {@link SyncScanner}.
+ * <p>
+ * what a walk counted goes to {@link ParserMetrics} (and to a JFR event) when its iterator runs out, when its
+ * stream is closed, or when the walker is closed : a walk that is stopped early is counted too, as long as one
+ * of those happens.
+ */
+final class FrameWalker implements Iterable<Frame>, AutoCloseable {
+
+    private final String path;
+    private final ByteSource file;
+    private final ParseListener listener;
+
+    // iterators that did not run out yet, they are counted when the walker is closed
+    private final List<FrameIterator> open = new ArrayList<>();
+
+    private FrameWalker(String path, ByteSource file, ParseListener listener) {
+        this.path = path;
+        this.file = file;
+        this.listener = listener;
+    }
+
+    static FrameWalker walk(String path) {
+        return walk(path, ParseListener.NONE);
+    }
+
+    static FrameWalker walk(String path, ParseListener listener) {
+        return new FrameWalker(path, MappedFile.map(path), listener);
+    }
+
+    /**
+     * the same walk over a file that is read, and not mapped, see {@link ChannelFile}
+     */
+    static FrameWalker walk(String path, ChannelFile file) {
+        return new FrameWalker(path, file, ParseListener.NONE);
+    }
+
+    @Override
+    public Iterator<Frame> iterator() {
+        return new FrameIterator(SyncScanner.audioStart(file));
+    }
+
+    /**
+     * the frames from 'position' on, which must be where a frame of this walk starts (see {@link SeekIndex}).
+     * the walk goes on from there exactly as if it had started at the beginning of the file
+     */
+    Iterator<Frame> iterator(long position) {
+        return new FrameIterator(position);
+    }
+
+    /**
+     * a stream that is not read to the end (limit, findFirst) is counted when it is closed
+     */
+    Stream<Frame> stream() {
+        FrameIterator iterator = new FrameIterator(SyncScanner.audioStart(file));
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::finish);
+    }
+
+    /**
+     * counts the walks that were stopped early, nothing is released : a mapping goes away with the last
+     * reference to it, and a {@link ChannelFile} is closed by whoever opened it
+     */
+    @Override
+    public void close() {
+        while (!open.isEmpty()) {
+            open.get(open.size() - 1).finish();
+        }
+    }
+
+    long fileSize() {
+        return file.size();
+    }
+
+    // the frame bytes that follow the 4 header bytes
+    ByteBuffer payload(Frame frame) {
+        return file.slice(frame.offset() + 4, frame.length() - 4);
+    }
+
+    // a Xing/Info/VBRI frame, it is a valid frame, but carries no audio
+    boolean isVbrHeader(Frame frame) {
+        return VbrHeaderProvider.vbr(file, frame.offset(), frame.header(), frame.length()) != null;
+    }
+
+    /**
+     * length of the frame at 'position', or 0 when the walk does not take what is there as a frame.
+     * a header is trusted only if the next one is where this frame says it is,
+     * otherwise bytes that just look like a header would throw the walk off
+     */
+    static int frameAt(ByteSource file, long position) {
+        int header = file.getInt(position);
+        int length = frameLength(header);
+        if (!hasFrameSync(header)) {
+            return 0;
+        }
+        if (length == 0) {
+            ParserMetrics.rejected(header);
+            return 0;
+        }
+        if (position + length <= file.size() && SyncScanner.isFollowedBySameStream(file, position + length, header)) {
+            return length;
+        }
+        return 0;
+    }
+
+    WalkSummary summary() {
+        return summary(false);
+    }
+
+    /**
+     * @param verifyCrc check the CRC of every frame that has one, see {@link CrcVerifier}
+     */
+    WalkSummary summary(boolean verifyCrc) {
+        long frames = 0;
+        long bytes = 0;
+        long nanos = 0;
+        long crcChecked = 0;
+        long crcMismatches = 0;
+        boolean first = true;
+        FrameIterator iterator = new FrameIterator(SyncScanner.audioStart(file));
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (first && isVbrHeader(frame)) {
+                first = false;
+                continue;
+            }
+            first = false;
+            frames++;
+            bytes += frame.length();
+            nanos += samplesPerFrame(frame.header()) * 1_000_000_000L / hz(frame.header());
+
+            if (verifyCrc && HeaderDecoder.crcProtected(frame.header())) {
+                int crc = CrcVerifier.check(file.slice(frame.offset(), frame.length()));
+                if (crc == CrcVerifier.CRC_MISMATCH) {
+                    crcMismatches++;
+                    iterator.crcMismatches++;
+                    listener.onCrcMismatch(frame.offset(), frame.header());
+                }
+                if (crc != CrcVerifier.CRC_UNCHECKED) {
+                    crcChecked++;
+                }
+            }
+        }
+        return new WalkSummary(frames, bytes, nanos / 1_000_000, crcChecked, crcMismatches);
+    }
+
+    /**
+     * counts in plain fields while walking and hands the totals to {@link ParserMetrics} (and to a JFR event)
+     * once, when the walk is over or stopped, so the per frame path stays free of shared writes
+     */
+    private final class FrameIterator implements Iterator<Frame> {
+
+        private final long start = System.nanoTime();
+        private final ParseEvents.FileParse event = new ParseEvents.FileParse();
+        private long frames;
+        private long bytes;
+        private long resyncs;
+        private long crcMismatches;
+        private boolean done;
+
+        private long position;
+        private Frame next;
+
+        private FrameIterator(long position) {
+            open.add(this);
+            event.begin();
+            this.position = position;
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                finish();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Frame next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Frame current = next;
+            next = advance();
+            return current;
+        }
+
+        private Frame advance() {
+            while (position + 4 <= file.size()) {
+                int length = frameAt(file, position);
+                if (length != 0) {
+                    int header = file.getInt(position);
+                    listener.onFrame(position, header, length);
+                    Frame frame = new Frame(position, header, length);
+                    position += length;
+                    frames++;
+                    bytes += length;
+                    return frame;
+                }
+                long lost = position;
+                position = SyncScanner.nextSync(file, position + 1);
+                resyncs++;
+                listener.onResync(lost, position);
+
+                ParseEvents.Resync resync = new ParseEvents.Resync();
+                if (resync.shouldCommit()) {
+                    resync.path = path;
+                    resync.lostAt = lost;
+                    resync.foundAt = position;
+                    resync.commit();
+                }
+                if (position == -1) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            open.remove(this);
+            ParserMetrics.walked(frames, bytes, resyncs, System.nanoTime() - start);
+
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.frames = frames;
+                event.bytes = bytes;
+                event.resyncs = resyncs;
+                event.crcMismatches = crcMismatches;
+                event.commit();
+            }
+        }
+    }
+
+}
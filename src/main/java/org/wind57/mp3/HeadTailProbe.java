@@ -0,0 +1,240 @@
+package org.wind57.mp3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * a probe that reads a fixed, small number of bytes per file, however big the file is : a window at the start
+ * (ID3v2 tags, the first frames and their Xing/Info/VBRI header) and the last TAIL_LENGTH bytes (ID3v1, APE and
+ * Lyrics3 tags). when the ID3v2 tags are bigger than the first window, one more window is read right after them.
+ * <p>
+ * reads go through an {@link AsynchronousFileChannel}, nothing blocks, so the reads of many files can be in flight
+ * at once. frames and duration come from the Xing/Info/VBRI header when there is one, otherwise they are
+ * estimated from the bitrate of the first frame and the bytes between the first frame and the tags at the end
+ * (exact for constant bitrate files).
+ */
+final class HeadTailProbe {
+
+    static final int HEAD_LENGTH = 64 * 1024;
+
+    // ID3v1 (128 bytes), the 'enhanced' TAG+ before it (227 bytes), and before those the footer of an APE tag
+    // (32 bytes) or the end of a Lyrics3 tag (15 bytes), which say how long the rest of their tag is
+    static final int TAIL_LENGTH = 128 + 227 + 32;
+
+    // biggest possible frame, see MappedFile
+    private static final int MAX_FRAME_LENGTH = 2881;
+
+    // a candidate is only looked at if the headers that confirm it (see SyncScanner) are in the window too
+    private static final int CHAIN_ROOM = (SyncScanner.CHAIN + 1) * MAX_FRAME_LENGTH + 4;
+
+    private static final int ID3V1_LENGTH = 128;
+    private static final int ID3V1_ENHANCED_LENGTH = 227;
+    private static final int APE_FOOTER_LENGTH = 32;
+    private static final int LYRICS3_END_LENGTH = 15;
+
+    // bit 31 of the APE flags : the tag also has a 32 bytes header, before its items
+    private static final int APE_HAS_HEADER = 0x80000000;
+
+    /**
+     * tags found at the end of the file
+     */
+    record Tags(boolean id3v1, boolean id3v1Enhanced, boolean ape, boolean lyrics3) {}
+
+    /**
+     * @param audioEnd  first byte after the last frame, where the tags at the end start
+     * @param bytesRead bytes read from the file, for the whole probe
+     */
+    record Result(Probe probe, long audioEnd, Tags tags, long bytesRead) {
+
+        long frames() {
+            if (probe.hasVbrHeader()) {
+                return probe.vbrHeader().frames();
+            }
+            int header = probe.header();
+            int kbps = HeaderDecoder.kbps(header);
+            if (kbps <= 0) {
+                return -1;
+            }
+            // a frame holds samplesPerFrame / hz seconds, that is samplesPerFrame * kbps * 1000 / hz / 8 bytes.
+            // that is not a whole number, encoders pad some frames to keep up with it : rounded, not cut
+            long bits = (audioEnd - probe.offset()) * 8;
+            long bitsPerFrame = (long) HeaderDecoder.samplesPerFrame(header) * kbps * 1000;
+            return (bits * HeaderDecoder.hz(header) + bitsPerFrame / 2) / bitsPerFrame;
+        }
+
+        long durationMillis() {
+            if (probe.hasVbrHeader()) {
+                return probe.vbrHeader().durationMillis(probe.header());
+            }
+            long frames = frames();
+            int header = probe.header();
+            return frames == -1 ? -1 : frames * HeaderDecoder.samplesPerFrame(header) * 1000 / HeaderDecoder.hz(header);
+        }
+    }
+
+    // the window that holds the first frames, where the audio starts in it, and what it took to get there
+    private record Head(FileWindow window, long audioStart, long bytesRead) {}
+
+    static CompletableFuture<Result> probe(Path path) {
+        long start = System.nanoTime();
+        AsynchronousFileChannel channel;
+        long size;
+        try {
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        // both reads are issued right away
+        long tailStart = Math.max(0, size - TAIL_LENGTH);
+        CompletableFuture<Head> head = read(channel, 0, HEAD_LENGTH, size)
+            .thenCompose(window -> head(channel, window, 0, window.end()));
+        CompletableFuture<FileWindow> tail = read(channel, tailStart, (int) (size - tailStart), size);
+
+        return head.thenCombine(tail, (first, last) -> {
+            Probe probe = probe(first);
+            Result result = tags(probe, last, first.bytesRead() + (size - tailStart));
+            ParserMetrics.probed(System.nanoTime() - start);
+            return result;
+        }).whenComplete((result, error) -> close(channel));
+    }
+
+    /**
+     * skips the ID3v2 tags from 'position' on, reading a new window whenever the next tag, or the frames
+     * after the tags, are not in the current one
+     */
+    private static CompletableFuture<Head> head(AsynchronousFileChannel channel, FileWindow window, long position,
+                                                long bytesRead) {
+        long size = window.size();
+        while (true) {
+            if (position + SyncScanner.ID3V2_HEADER_LENGTH > window.end() && window.end() < size) {
+                return next(channel, position, size, bytesRead);
+            }
+            long length = SyncScanner.id3v2Length(window, position);
+            if (length == 0) {
+                break;
+            }
+            position += length;
+        }
+
+        long audioStart = Math.min(position, size);
+        if (audioStart + CHAIN_ROOM > window.end() && window.end() < size) {
+            return next(channel, audioStart, size, bytesRead);
+        }
+        return CompletableFuture.completedFuture(new Head(window, audioStart, bytesRead));
+    }
+
+    private static CompletableFuture<Head> next(AsynchronousFileChannel channel, long position, long size,
+                                                long bytesRead) {
+        return read(channel, position, HEAD_LENGTH, size)
+            .thenCompose(window -> head(channel, window, position, bytesRead + window.end() - window.start()));
+    }
+
+    private static Probe probe(Head head) {
+        FileWindow window = head.window();
+        long size = window.size();
+        // up to the end of the file when the window reaches it, otherwise leave room for the confirming headers
+        long until = window.end() == size ? size - 3 : window.end() - CHAIN_ROOM;
+        long offset = SyncScanner.nextSync(window, head.audioStart(), until);
+        if (offset == -1) {
+            ParserMetrics.syncFailure();
+            throw new RuntimeException("Invalid mp3, 'no frame sync found'");
+        }
+
+        int header = window.getInt(offset);
+        VbrHeader vbrHeader = VbrHeaderProvider.vbr(window, offset, header, HeaderDecoder.frameLength(header));
+        return new Probe(size, offset, header, vbrHeader);
+    }
+
+    // tags are looked for from the end backwards, each one ends where the one after it starts
+    private static Result tags(Probe probe, FileWindow tail, long bytesRead) {
+        long end = tail.size();
+        boolean id3v1 = false;
+        boolean enhanced = false;
+        boolean ape = false;
+        boolean lyrics3 = false;
+
+        if (end - ID3V1_LENGTH >= tail.start() && is(tail, end - ID3V1_LENGTH, "TAG")) {
+            id3v1 = true;
+            end -= ID3V1_LENGTH;
+            if (end - ID3V1_ENHANCED_LENGTH >= tail.start() && is(tail, end - ID3V1_ENHANCED_LENGTH, "TAG+")) {
+                enhanced = true;
+                end -= ID3V1_ENHANCED_LENGTH;
+            }
+        }
+
+        // APE and Lyrics3 can come in either order. only the end of the file is read, so a tag whose footer
+        // is not in the tail (one that sits before another long tag) is taken for audio
+        while (true) {
+            if (end - APE_FOOTER_LENGTH >= tail.start() && is(tail, end - APE_FOOTER_LENGTH, "APETAGEX")) {
+                long footer = end - APE_FOOTER_LENGTH;
+                // little endian : the size covers the items and the footer, not the header
+                int length = Integer.reverseBytes(tail.getInt(footer + 12));
+                int flags = Integer.reverseBytes(tail.getInt(footer + 20));
+                end -= Integer.toUnsignedLong(length) + ((flags & APE_HAS_HEADER) != 0 ? APE_FOOTER_LENGTH : 0);
+                ape = true;
+            } else if (end - LYRICS3_END_LENGTH >= tail.start() && is(tail, end - 9, "LYRICS200")) {
+                // 6 ascii digits : the size of the tag, without those digits and 'LYRICS200'
+                long length = 0;
+                for (int i = 0; i < 6; i++) {
+                    length = length * 10 + (tail.get(end - LYRICS3_END_LENGTH + i) - '0');
+                }
+                end -= length + LYRICS3_END_LENGTH;
+                lyrics3 = true;
+            } else {
+                break;
+            }
+        }
+
+        return new Result(probe, Math.max(end, probe.offset()), new Tags(id3v1, enhanced, ape, lyrics3), bytesRead);
+    }
+
+    private static boolean is(ByteSource source, long position, String id) {
+        for (int i = 0; i < id.length(); i++) {
+            if (source.get(position + i) != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // one read of up to 'length' bytes at 'position', less at the end of the file
+    private static CompletableFuture<FileWindow> read(AsynchronousFileChannel channel, long position, int length,
+                                                      long size) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, size - position));
+        CompletableFuture<FileWindow> window = new CompletableFuture<>();
+        channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read == -1 || !buffer.hasRemaining()) {
+                    window.complete(new FileWindow(position, size, buffer.flip()));
+                } else {
+                    // a short read, ask for the rest
+                    channel.read(buffer, position + buffer.position(), null, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable error, Void attachment) {
+                window.completeExceptionally(error);
+            }
+        });
+        return window;
+    }
+
+    private static void close(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package org.wind57.mp3;
+
+/**
+ * decodes a frame header (as an int) into numbers, without allocating anything.
+ * every field is a couple of shifts and a lookup into a table that is computed once.
+ * the providers build their human readable Strings on top of this, only when asked for them.
+ */
+final class HeaderDecoder {
+
+    // rows are indexed by the raw bitrate index (15 and 12 bits), 0 means 'free', -1 means 'bad'
+    private static final int[] V1_L1 = {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, -1};
+    private static final int[] V1_L2 = {0, 32, 48, 56,  64,  80,  96, 112, 128, 160, 192, 224, 256, 320, 384, -1};
+    private static final int[] V1_L3 = {0, 32, 40, 48,  56,  64,  80,  96, 112, 128, 160, 192, 224, 256, 320, -1};
+    private static final int[] V2_L1 = {0, 32, 48, 56,  64,  80,  96, 112, 128, 144, 160, 176, 192, 224, 256, -1};
+    private static final int[] V2_L2 = {0,  8, 16, 24,  32,  40,  48,  56,  64,  80,  96, 112, 128, 144, 160, -1};
+
+    // indexed by the raw sample rate index (11 and 10 bits), -1 means 'reserve'
+    private static final int[] V1_RATES  = {44100, 48000, 32000, -1};
+    private static final int[] V2_RATES  = {22050, 24000, 16000, -1};
+    private static final int[] V25_RATES = {11025, 12000,  8000, -1};
+
+    // raw audio version (20 and 19 bits) : 00 -> V2.5, 01 -> reserved, 10 -> V2, 11 -> V1
+    private static final AudioVersion[] VERSIONS =
+        {AudioVersion.V25, AudioVersion.RESERVED, AudioVersion.V2, AudioVersion.V1};
+
+    // raw layer (18 and 17 bits) : 00 -> reserved, 01 -> Layer III, 10 -> Layer II, 11 -> Layer I
+    private static final LayerVersion[] LAYERS =
+        {LayerVersion.RESERVED, LayerVersion.L3, LayerVersion.L2, LayerVersion.L1};
+
+    // index : version (2 bits) | layer (2 bits) | bitrate (4 bits)
+    private static final int[] KBPS = new int[256];
+
+    // index : version (2 bits) | sample rate (2 bits)
+    private static final int[] HZ = new int[16];
+
+    // index : version (2 bits) | layer (2 bits)
+    private static final int[] SAMPLES_PER_FRAME = new int[16];
+
+    // index : version (2 bits) | layer (2 bits) | bitrate (4 bits) | sample rate (2 bits) | padding (1 bit)
+    // 0 when the length can not be computed ('reserved' fields, 'bad' or 'free' bitrate)
+    private static final int[] FRAME_LENGTH = new int[2048];
+
+    static {
+        for (int version = 0; version < 4; version++) {
+            for (int layer = 0; layer < 4; layer++) {
+                int[] bitrates = bitrates(VERSIONS[version], LAYERS[layer]);
+                for (int bitrate = 0; bitrate < 16; bitrate++) {
+                    KBPS[version << 6 | layer << 4 | bitrate] = bitrates == null ? -1 : bitrates[bitrate];
+                }
+                SAMPLES_PER_FRAME[version << 2 | layer] = samplesPerFrame(VERSIONS[version], LAYERS[layer]);
+            }
+            int[] rates = rates(VERSIONS[version]);
+            for (int rate = 0; rate < 4; rate++) {
+                HZ[version << 2 | rate] = rates == null ? -1 : rates[rate];
+            }
+        }
+
+        for (int index = 0; index < FRAME_LENGTH.length; index++) {
+            int versionAndLayer = index >> 7;
+            int kbps = KBPS[versionAndLayer << 4 | (index >> 3) & 15];
+            int hz = HZ[(versionAndLayer >> 2) << 2 | (index >> 1) & 3];
+            int padding = index & 1;
+            if (kbps <= 0 || hz == -1) {
+                continue;
+            }
+            int bitsPerSecond = kbps * 1000;
+            FRAME_LENGTH[index] = switch (LAYERS[versionAndLayer & 3]) {
+                // Layer I slots are 4 bytes
+                case L1 -> (12 * bitsPerSecond / hz + padding) * 4;
+                case L2 -> 144 * bitsPerSecond / hz + padding;
+                // MPEG 2 and 2.5 Layer III frames carry half the samples
+                case L3 -> (VERSIONS[versionAndLayer >> 2] == AudioVersion.V1 ? 144 : 72) * bitsPerSecond / hz + padding;
+                case RESERVED -> 0;
+            };
+        }
+    }
+
+    static AudioVersion version(int frame) {
+        return VERSIONS[(frame >>> 19) & 3];
+    }
+
+    static LayerVersion layer(int frame) {
+        return LAYERS[(frame >>> 17) & 3];
+    }
+
+    // kbps, 0 for 'free', -1 for 'bad' or when version / layer are 'reserved'
+    static int kbps(int frame) {
+        return KBPS[(frame >>> 13) & 240 | (frame >>> 12) & 15];
+    }
+
+    // Hz, -1 for 'reserve' or when version is 'reserved'
+    static int hz(int frame) {
+        return HZ[(frame >>> 17) & 12 | (frame >>> 10) & 3];
+    }
+
+    // bytes, header included, 0 if it can't be computed
+    static int frameLength(int frame) {
+        return FRAME_LENGTH[(frame >>> 10) & 1920 | (frame >>> 9) & 127];
+    }
+
+    // -1 when version or layer are 'reserved'
+    static int samplesPerFrame(int frame) {
+        return SAMPLES_PER_FRAME[(frame >>> 17) & 15];
+    }
+
+    // 0 : Stereo, 1 : Joint stereo, 2 : Dual channel, 3 : Mono
+    static int channelMode(int frame) {
+        return (frame >>> 6) & 3;
+    }
+
+    static int padding(int frame) {
+        return (frame >>> 9) & 1;
+    }
+
+    // the protection bit (16) is 0 when a CRC follows the header
+    static boolean crcProtected(int frame) {
+        return (frame & 65536) == 0;
+    }
+
+    private static int[] bitrates(AudioVersion version, LayerVersion layer) {
+        if (version == AudioVersion.RESERVED || layer == LayerVersion.RESERVED) {
+            return null;
+        }
+        if (version == AudioVersion.V1) {
+            return switch (layer) {
+                case L1 -> V1_L1;
+                case L2 -> V1_L2;
+                default -> V1_L3;
+            };
+        }
+        // MPEG 2 and 2.5 share the same bitrates, and Layer II and III share them too
+        return layer == LayerVersion.L1 ? V2_L1 : V2_L2;
+    }
+
+    private static int[] rates(AudioVersion version) {
+        return switch (version) {
+            case V1 -> V1_RATES;
+            case V2 -> V2_RATES;
+            case V25 -> V25_RATES;
+            case RESERVED -> null;
+        };
+    }
+
+    private static int samplesPerFrame(AudioVersion version, LayerVersion layer) {
+        if (version == AudioVersion.RESERVED) {
+            return -1;
+        }
+        return switch (layer) {
+            case L1 -> 384;
+            case L2 -> 1152;
+            case L3 -> version == AudioVersion.V1 ? 1152 : 576;
+            case RESERVED -> -1;
+        };
+    }
+
+}
@@ -5,25 +5,24 @@ final class LayerProvider {
     // 18 and 17 bits are set 0000_0000_0000_0110_0000_0000_0000_0000
     private static final int LAYER_MASK = 393216;
 
+    // indexed by the raw layer, built once so that decoding never allocates
+    private static final LayerIdAndVersion[] LAYERS = {
+        new LayerIdAndVersion("reserved", LayerVersion.RESERVED),
+        new LayerIdAndVersion("Layer III", LayerVersion.L3),
+        new LayerIdAndVersion("Layer II", LayerVersion.L2),
+        new LayerIdAndVersion("Layer I", LayerVersion.L1)
+    };
+
     static LayerIdAndVersion layer(int frame) {
 
         int layer = (( frame & LAYER_MASK) >> 17);
 
-        return switch (layer) {
-            case 0 -> new LayerIdAndVersion("reserved", LayerVersion.RESERVED);
-            case 1 -> new LayerIdAndVersion("Layer III", LayerVersion.L3);
-            case 2 -> new LayerIdAndVersion("Layer II", LayerVersion.L2);
-            case 3 -> new LayerIdAndVersion("Layer I", LayerVersion.L1);
-            default -> throw new IllegalStateException("Unexpected value: " + layer);
-        };
+        if (layer == 0) {
+            ParserMetrics.reservedField();
+        }
 
-    }
+        return LAYERS[layer];
 
-    enum LayerVersion {
-        L1,
-        L2,
-        L3,
-        RESERVED
     }
 
     record LayerIdAndVersion(String layerId, LayerVersion layerVersion) {}
@@ -0,0 +1,11 @@
+package org.wind57.mp3;
+
+/**
+ * 18 and 17 bits of a frame header
+ */
+public enum LayerVersion {
+    L1,
+    L2,
+    L3,
+    RESERVED
+}
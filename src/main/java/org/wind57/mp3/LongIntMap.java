@@ -0,0 +1,98 @@
+package org.wind57.mp3;
+
+import java.util.Arrays;
+
+/**
+ * long -> int, open addressed (linear probing) over two primitive arrays : no boxing and no object per entry.
+ * values are never negative, MISSING stands for 'no such key'. nothing is ever removed. not thread safe.
+ */
+final class LongIntMap {
+
+    static final int MISSING = -1;
+
+    // at most 3/4 of the slots are used, it doubles past that
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    private long[] keys;
+    // MISSING in an empty slot
+    private int[] values;
+    private int size;
+
+    LongIntMap() {
+        allocate(16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        return values[slot(key)];
+    }
+
+    /**
+     * @param value not negative
+     */
+    void put(long key, int value) {
+        int slot = slot(key);
+        if (values[slot] == MISSING) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        if (size * 100L > (long) keys.length * MAX_LOAD_PERCENT) {
+            grow();
+        }
+    }
+
+    /**
+     * adds 'delta' to the value of 'key', that starts at 0
+     */
+    void add(long key, int delta) {
+        int value = get(key);
+        put(key, (value == MISSING ? 0 : value) + delta);
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != MISSING) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // where 'key' is, or the empty slot where it would go
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        // keys are often hashes already, but pairs of small ids are not : mix the bits
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed ^ mixed >>> 32) & mask;
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != MISSING) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+}
@@ -1,5 +1,8 @@
 package org.wind57.mp3;
 
+import java.util.Arrays;
+import java.util.Locale;
+
 import static org.wind57.mp3.FrameProvider.frame;
 import static org.wind57.mp3.LayerProvider.layer;
 import static org.wind57.mp3.AudioVersionIDProvider.audio;
@@ -13,8 +16,25 @@ import static org.wind57.mp3.LayerProvider.LayerIdAndVersion;
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchScanner.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 0 && "--dedupe".equals(args[0])) {
+            DuplicateFinder.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 0 && ("--clip".equals(args[0]) || "--split".equals(args[0]))) {
+            Clipper.run(args);
+            return;
+        }
+
         int frame = frame(args[0]);
 
+        System.out.println("Frame Header     : " + Integer.toBinaryString(frame));
+
         AudioIdAndVersion audioVersionId = audio(frame);
         LayerIdAndVersion layerIdAndVersion = layer(frame);
         String bitrate = bitrate(frame, audioVersionId.audioVersion(), layerIdAndVersion.layerVersion());
@@ -25,6 +45,46 @@ public class Main {
         System.out.println("Sample Rate      : " + rate(frame, audioVersionId.audioVersion()));
         System.out.println("Channel          : " + channel(frame));
 
+        // the Xing/Info/VBRI header already knows frames and duration, walking the file
+        // is only needed when there is none, or when asked for with --walk (to verify it)
+        Probe probe = FrameProvider.probe(args[0]);
+        boolean walk = Arrays.asList(args).contains("--walk");
+        boolean verifyCrc = Arrays.asList(args).contains("--crc");
+        boolean parallel = Arrays.asList(args).contains("--parallel");
+        boolean stats = Arrays.asList(args).contains("--stats");
+        if (probe.hasVbrHeader()) {
+            VbrHeader vbrHeader = probe.vbrHeader();
+            System.out.println("VBR Header       : " + vbrHeader.type());
+            System.out.println("Frames           : " + vbrHeader.frames());
+            System.out.println("Duration         : " + vbrHeader.durationMillis(probe.header()) + " ms");
+            if (vbrHeader.encoder() != null) {
+                System.out.println("Encoder          : " + vbrHeader.encoder());
+                System.out.println("Encoder Delay    : " + vbrHeader.encoderDelay());
+                System.out.println("Encoder Padding  : " + vbrHeader.encoderPadding());
+            }
+        }
+
+        if (!probe.hasVbrHeader() || walk || verifyCrc || parallel) {
+            // CRCs are only checked by the sequential walk
+            WalkSummary summary = parallel && !verifyCrc
+                ? ParallelWalker.walk(args[0]).summary()
+                : FrameWalker.walk(args[0]).summary(verifyCrc);
+            System.out.println("Frames (walk)    : " + summary.frames());
+            System.out.println("Duration (walk)  : " + summary.durationMillis() + " ms");
+            if (verifyCrc) {
+                System.out.println("CRC Checked      : " + summary.crcChecked());
+                System.out.println("CRC Mismatches   : " + summary.crcMismatches());
+            }
+        }
+
+        if (stats) {
+            FrameTable table = FrameTable.build(args[0]);
+            System.out.println("Average Bitrate  : " + String.format(Locale.ROOT, "%.1f", table.averageKbps()));
+            System.out.println("Bitrate p50/p95  : " + table.percentileKbps(50) + " / " + table.percentileKbps(95));
+            System.out.println("VBR              : " + table.isVbr());
+            System.out.println("Channel Changes  : " + table.channelModeChanges());
+        }
+
     }
 
 }
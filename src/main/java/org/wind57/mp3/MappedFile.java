@@ -0,0 +1,79 @@
+package org.wind57.mp3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * read-only view of a whole file, mapped in fixed size regions, so that files
+ * bigger than 2 GB (the limit of a single MappedByteBuffer) can be addressed with a long.
+ */
+final class MappedFile implements ByteSource {
+
+    // every region starts at a multiple of this
+    private static final long REGION_SIZE = 1L << 30;
+
+    // each region is mapped a bit longer than REGION_SIZE, so that anything starting inside
+    // a region and shorter than this (a header, a whole frame) can be read from that region only.
+    // the biggest possible frame is 2881 bytes (Layer II, MPEG 2, 160 kbps, 8000 Hz, padded)
+    static final int REGION_OVERLAP = 8192;
+
+    private final MappedByteBuffer[] regions;
+    private final long size;
+
+    private MappedFile(MappedByteBuffer[] regions, long size) {
+        this.regions = regions;
+        this.size = size;
+    }
+
+    static MappedFile map(String path) {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + REGION_SIZE - 1) / REGION_SIZE);
+            MappedByteBuffer[] regions = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * REGION_SIZE;
+                long length = Math.min(size - start, REGION_SIZE + REGION_OVERLAP);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            // a mapping stays valid after its channel is closed
+            return new MappedFile(regions, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte get(long position) {
+        return regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE));
+    }
+
+    @Override
+    public int getInt(long position) {
+        return regions[(int) (position / REGION_SIZE)].getInt((int) (position % REGION_SIZE));
+    }
+
+    @Override
+    public long getLong(long position) {
+        return regions[(int) (position / REGION_SIZE)].getLong((int) (position % REGION_SIZE));
+    }
+
+    /**
+     * a read-only view of [position, position + length) that shares the mapped memory, nothing is copied.
+     * length must not be bigger than REGION_OVERLAP.
+     */
+    @Override
+    public ByteBuffer slice(long position, int length) {
+        return regions[(int) (position / REGION_SIZE)].slice((int) (position % REGION_SIZE), length).asReadOnlyBuffer();
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.wind57.mp3;
+
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * entry point for using the parser as a library. nothing here prints anything,
+ * diagnostics go to the (optional) {@link ParseListener}.
+ * an instance holds no state besides the listener and can be shared between threads.
+ */
+public final class Mp3Parser {
+
+    private final ParseListener listener;
+
+    public Mp3Parser() {
+        this(ParseListener.NONE);
+    }
+
+    public Mp3Parser(ParseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * header of the first frame, after ID3v2 tag(s) and junk
+     */
+    public FrameHeader firstHeader(Path path) {
+        return new FrameHeader(FrameProvider.frame(path.toString(), listener));
+    }
+
+    /**
+     * the first frame and its Xing/Info/VBRI header, if any, the rest of the file is not read
+     */
+    public Probe probe(Path path) {
+        return FrameProvider.probe(path.toString(), listener);
+    }
+
+    /**
+     * every frame of the file, lazily, in file order. payloads are not read.
+     * a stream that is not read to the end (limit, findFirst) should be closed, so that the walk is still
+     * counted by {@link ParserMetrics}
+     */
+    public Stream<Frame> frames(Path path) {
+        return FrameWalker.walk(path.toString(), listener).stream();
+    }
+
+    /**
+     * walks every frame of the file
+     */
+    public WalkSummary walk(Path path) {
+        return walk(path, false);
+    }
+
+    /**
+     * walks every frame of the file, and checks the CRC of those that have one (Layer I and III).
+     * mismatches are counted in the summary and reported to the listener
+     */
+    public WalkSummary walk(Path path, boolean verifyCrc) {
+        return FrameWalker.walk(path.toString(), listener).summary(verifyCrc);
+    }
+
+    /**
+     * the same summary as {@link #walk(Path)}, with the file cut into ranges that are walked on the common
+     * fork join pool. only worth it for big files (hundreds of MB and up), smaller ones are walked on one thread.
+     * the listener is not called
+     */
+    public WalkSummary walkParallel(Path path) {
+        return ParallelWalker.walk(path.toString()).summary();
+    }
+
+    /**
+     * time and sample -> byte offset, for random access seeks. kept in a '.seek' file next to the mp3 and
+     * read back from there while the mp3 does not change, built (one walk) when it is missing, stale or damaged.
+     * when it can't be written (a read only mount), the index is still returned.
+     */
+    public SeekIndex seekIndex(Path path) {
+        return SeekIndex.loadOrBuild(path.toString());
+    }
+
+    /**
+     * the same, with the '.seek' files kept in 'indexDirectory' instead of next to the mp3s
+     */
+    public SeekIndex seekIndex(Path path, Path indexDirectory) {
+        return SeekIndex.loadOrBuild(path.toString(), indexDirectory);
+    }
+
+}
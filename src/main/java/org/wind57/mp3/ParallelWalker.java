@@ -0,0 +1,242 @@
+package org.wind57.mp3;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static org.wind57.mp3.HeaderDecoder.frameLength;
+import static org.wind57.mp3.HeaderDecoder.hz;
+import static org.wind57.mp3.HeaderDecoder.samplesPerFrame;
+
+/**
+ * the same walk as {@link FrameWalker}, for very big files, on many threads.
+ * <p>
+ * the file is cut into ranges, each range is walked on its own: from the first confirmed frame in it
+ * (see {@link SyncScanner#nextSync}) up to the first position at or after its end. that first frame can
+ * be a false sync (payload bytes that look like a chain of headers), so when two neighbour ranges are joined,
+ * the walk of the left one goes on into the right one until it lands on a frame the right one found too.
+ * from there both walks are the same (a walk only depends on the position it is at), what the right range
+ * found before that point is dropped. the result is exactly the frames of a sequential walk.
+ */
+final class ParallelWalker {
+
+    // below this, a range is walked and not split any further
+    static final long MIN_RANGE = 8L << 20;
+
+    private final MappedFile file;
+    private final long minRange;
+
+    private ParallelWalker(MappedFile file, long minRange) {
+        this.file = file;
+        this.minRange = minRange;
+    }
+
+    static Frames walk(String path) {
+        return walk(path, ForkJoinPool.commonPool(), MIN_RANGE);
+    }
+
+    static Frames walk(String path, ForkJoinPool pool, long minRange) {
+        long start = System.nanoTime();
+        MappedFile file = MappedFile.map(path);
+        ParallelWalker walker = new ParallelWalker(file, minRange);
+        long audioStart = SyncScanner.audioStart(file);
+        Frames frames = pool.invoke(walker.new RangeTask(audioStart, file.size(), true)).frames(file);
+        ParserMetrics.walked(frames.count(), frames.bytes(), frames.resyncs(), System.nanoTime() - start);
+        return frames;
+    }
+
+    /**
+     * frames of a whole file, in file order, as two columns
+     */
+    static final class Frames {
+
+        private final long[] offsets;
+        private final int[] headers;
+        private final int count;
+        private final long audioStart;
+        private final long size;
+        private final boolean firstIsVbrHeader;
+
+        private Frames(long[] offsets, int[] headers, int count, long audioStart, long size, boolean firstIsVbrHeader) {
+            this.offsets = offsets;
+            this.headers = headers;
+            this.count = count;
+            this.audioStart = audioStart;
+            this.size = size;
+            this.firstIsVbrHeader = firstIsVbrHeader;
+        }
+
+        int count() {
+            return count;
+        }
+
+        Frame get(int index) {
+            return new Frame(offsets[index], headers[index], frameLength(headers[index]));
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (int i = 0; i < count; i++) {
+                bytes += frameLength(headers[i]);
+            }
+            return bytes;
+        }
+
+        // gaps between frames (and before the first, after the last frame), which is close to, but not always
+        // the number of times the sequential walk had to resync
+        long resyncs() {
+            long resyncs = 0;
+            long expected = audioStart;
+            for (int i = 0; i < count; i++) {
+                if (offsets[i] != expected) {
+                    resyncs++;
+                }
+                expected = offsets[i] + frameLength(headers[i]);
+            }
+            return expected + 4 <= size ? resyncs + 1 : resyncs;
+        }
+
+        /**
+         * the same numbers as {@link FrameWalker#summary()}, CRCs are not checked
+         */
+        WalkSummary summary() {
+            long frames = 0;
+            long bytes = 0;
+            long nanos = 0;
+            for (int i = firstIsVbrHeader ? 1 : 0; i < count; i++) {
+                int header = headers[i];
+                frames++;
+                bytes += frameLength(header);
+                nanos += samplesPerFrame(header) * 1_000_000_000L / hz(header);
+            }
+            return new WalkSummary(frames, bytes, nanos / 1_000_000, 0, 0);
+        }
+    }
+
+    /**
+     * what the walk of one range found : its frames, and where it stopped (-1 at the end of the file, or when
+     * there was no sync to start from in the range)
+     */
+    private static final class Range {
+
+        private final long from;
+        private final long to;
+        private long[] offsets = new long[1024];
+        private int[] headers = new int[1024];
+        private int count;
+        private long end;
+
+        private Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void add(long offset, int header) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                headers = Arrays.copyOf(headers, count * 2);
+            }
+            offsets[count] = offset;
+            headers[count] = header;
+            count++;
+        }
+
+        private Frames frames(MappedFile file) {
+            boolean firstIsVbrHeader = count > 0
+                && VbrHeaderProvider.vbr(file, offsets[0], headers[0], frameLength(headers[0])) != null;
+            return new Frames(offsets, headers, count, from, file.size(), firstIsVbrHeader);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveTask<Range> {
+
+        private final long from;
+        private final long to;
+
+        // only the first range starts where the sequential walk starts, the others look for a sync first
+        private final boolean first;
+
+        private RangeTask(long from, long to, boolean first) {
+            this.from = from;
+            this.to = to;
+            this.first = first;
+        }
+
+        @Override
+        protected Range compute() {
+            if (to - from <= minRange) {
+                Range range = new Range(from, to);
+                // only this range is searched for a sync, a range with none in it has no frames
+                long position = first ? from : SyncScanner.nextSync(file, from, to);
+                range.end = position == -1 ? -1 : walk(range, position, to);
+                return range;
+            }
+
+            long middle = from + (to - from) / 2;
+            RangeTask right = new RangeTask(middle, to, false);
+            right.fork();
+            Range left = new RangeTask(from, middle, first).compute();
+            return join(left, right.join());
+        }
+
+        private Range join(Range left, Range right) {
+            Range joined = new Range(left.from, right.to);
+            if (left.count == 0 && left.end == -1) {
+                // no sync in the left range : a walk from its start finds the first one in the right range,
+                // exactly where the right range starts its own walk
+                joined.offsets = right.offsets;
+                joined.headers = right.headers;
+                joined.count = right.count;
+                joined.end = right.end;
+                return joined;
+            }
+            joined.offsets = left.offsets;
+            joined.headers = left.headers;
+            joined.count = left.count;
+
+            long position = left.end;
+            while (position != -1 && position < right.to) {
+                int index = Arrays.binarySearch(right.offsets, 0, right.count, position);
+                if (index >= 0) {
+                    // the walks met, the rest of the right range is what the sequential walk finds too
+                    int tail = right.count - index;
+                    int count = joined.count + tail;
+                    joined.offsets = Arrays.copyOf(joined.offsets, count);
+                    joined.headers = Arrays.copyOf(joined.headers, count);
+                    System.arraycopy(right.offsets, index, joined.offsets, joined.count, tail);
+                    System.arraycopy(right.headers, index, joined.headers, joined.count, tail);
+                    joined.count = count;
+                    joined.end = right.end;
+                    return joined;
+                }
+                position = step(joined, position);
+            }
+            // never met (the right range only found false syncs, or nothing) : this walk is the right one
+            joined.end = position;
+            return joined;
+        }
+    }
+
+    // walks from 'position' to the first position at or after 'to', that position is returned
+    private long walk(Range range, long position, long to) {
+        while (position != -1 && position < to) {
+            position = step(range, position);
+        }
+        return position;
+    }
+
+    // one step of the walk in FrameWalker : a frame, or a resync
+    private long step(Range range, long position) {
+        if (position + 4 > file.size()) {
+            return -1;
+        }
+        int length = FrameWalker.frameAt(file, position);
+        if (length != 0) {
+            range.add(position, file.getInt(position));
+            return position + length;
+        }
+        return SyncScanner.nextSync(file, position + 1);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.wind57.mp3;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of the parser, they cost (almost) nothing unless a recording enables them :
+ * <pre>
+ *     java -XX:StartFlightRecording:filename=parse.jfr ...
+ *     jfr print --events org.wind57.mp3.FileParse parse.jfr
+ * </pre>
+ */
+final class ParseEvents {
+
+    @Name("org.wind57.mp3.FileParse")
+    @Label("MP3 File Parse")
+    @Category("MP3 Parser")
+    @Description("A walk over every frame of a file")
+    static final class FileParse extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Frames")
+        long frames;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Resyncs")
+        long resyncs;
+
+        @Label("CRC Mismatches")
+        long crcMismatches;
+    }
+
+    @Name("org.wind57.mp3.Resync")
+    @Label("MP3 Resync")
+    @Category("MP3 Parser")
+    @Description("A walk lost the frame sync and looked for the next frame")
+    static final class Resync extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Lost At")
+        long lostAt;
+
+        @Label("Found At")
+        @Description("-1 when there was no other frame")
+        long foundAt;
+    }
+
+}
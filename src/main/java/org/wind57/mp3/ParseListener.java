@@ -0,0 +1,68 @@
+package org.wind57.mp3;
+
+/**
+ * diagnostics while parsing. every method does nothing by default, so only what is needed has to be implemented.
+ * calls happen on the parsing thread, in the order things are found in the file.
+ */
+public interface ParseListener {
+
+    ParseListener NONE = new ParseListener() {};
+
+    /**
+     * the frame every probe starts from : the first one after the ID3v2 tag(s) and any junk
+     */
+    default void onFirstFrame(long offset, int header) {
+    }
+
+    /**
+     * every frame of a walk, this is on the hot path
+     */
+    default void onFrame(long offset, int header, int length) {
+    }
+
+    /**
+     * there was no frame at 'from', the next one is at 'to' (-1 when there is no other frame in the file)
+     */
+    default void onResync(long from, long to) {
+    }
+
+    /**
+     * only when CRCs are verified : the frame at 'offset' is protected by a CRC, and it does not match
+     */
+    default void onCrcMismatch(long offset, int header) {
+    }
+
+    /**
+     * first frames, resyncs and CRC mismatches at DEBUG, every frame at TRACE
+     */
+    static ParseListener logging(System.Logger logger) {
+        return new ParseListener() {
+
+            @Override
+            public void onFirstFrame(long offset, int header) {
+                if (logger.isLoggable(System.Logger.Level.DEBUG)) {
+                    logger.log(System.Logger.Level.DEBUG, "first frame at {0}, header as bits : {1}",
+                        offset, Integer.toBinaryString(header));
+                }
+            }
+
+            @Override
+            public void onFrame(long offset, int header, int length) {
+                if (logger.isLoggable(System.Logger.Level.TRACE)) {
+                    logger.log(System.Logger.Level.TRACE, "frame at {0}, {1} bytes", offset, length);
+                }
+            }
+
+            @Override
+            public void onResync(long from, long to) {
+                logger.log(System.Logger.Level.DEBUG, "no frame at {0}, next one at {1}", from, to);
+            }
+
+            @Override
+            public void onCrcMismatch(long offset, int header) {
+                logger.log(System.Logger.Level.DEBUG, "CRC mismatch in frame at {0}", offset);
+            }
+        };
+    }
+
+}
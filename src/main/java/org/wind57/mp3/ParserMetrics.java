@@ -0,0 +1,96 @@
+package org.wind57.mp3;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * process wide counters of what the parser did, to be pulled with {@link #snapshot()}.
+ * counters are striped (LongAdder), so parsing threads do not contend on them, and the walk only adds
+ * to them once per file, not once per frame. the same numbers, per file, are also recorded as
+ * JDK Flight Recorder events ('org.wind57.mp3.FileParse', 'org.wind57.mp3.Resync') when those are enabled.
+ */
+public final class ParserMetrics {
+
+    private static final LongAdder FILES = new LongAdder();
+    private static final LongAdder HEADERS = new LongAdder();
+    private static final LongAdder BYTES = new LongAdder();
+    private static final LongAdder SYNC_FAILURES = new LongAdder();
+    private static final LongAdder RESYNCS = new LongAdder();
+    private static final LongAdder RESERVED_FIELDS = new LongAdder();
+    private static final LongAdder BAD_BITRATES = new LongAdder();
+    private static final LongAdder FREE_BITRATES = new LongAdder();
+    private static final LongAdder NANOS = new LongAdder();
+
+    /**
+     * @param files          files that were probed or walked
+     * @param headers        frame headers decoded
+     * @param bytes          bytes walked over (audio start to the end of the last frame)
+     * @param syncFailures   first frames that did not have a frame sync
+     * @param resyncs        times a walk lost sync and had to look for the next frame
+     * @param reservedFields headers with a frame sync and a 'reserved' audio version, layer or sample rate,
+     *                       rejected by a walk or a sync scan (or turned into text)
+     * @param badBitrates    the same, with a 'bad' bitrate
+     * @param freeBitrates   the same, with a 'free' bitrate (its frame length can't be known from the header)
+     * @param nanos          time spent in probes and walks
+     */
+    public record Snapshot(long files, long headers, long bytes, long syncFailures, long resyncs,
+                           long reservedFields, long badBitrates, long freeBitrates, long nanos) {}
+
+    public static Snapshot snapshot() {
+        return new Snapshot(FILES.sum(), HEADERS.sum(), BYTES.sum(), SYNC_FAILURES.sum(), RESYNCS.sum(),
+            RESERVED_FIELDS.sum(), BAD_BITRATES.sum(), FREE_BITRATES.sum(), NANOS.sum());
+    }
+
+    public static void reset() {
+        FILES.reset();
+        HEADERS.reset();
+        BYTES.reset();
+        SYNC_FAILURES.reset();
+        RESYNCS.reset();
+        RESERVED_FIELDS.reset();
+        BAD_BITRATES.reset();
+        FREE_BITRATES.reset();
+        NANOS.reset();
+    }
+
+    static void probed(long nanos) {
+        FILES.increment();
+        HEADERS.increment();
+        NANOS.add(nanos);
+    }
+
+    static void walked(long headers, long bytes, long resyncs, long nanos) {
+        FILES.increment();
+        HEADERS.add(headers);
+        BYTES.add(bytes);
+        RESYNCS.add(resyncs);
+        NANOS.add(nanos);
+    }
+
+    static void syncFailure() {
+        SYNC_FAILURES.increment();
+    }
+
+    /**
+     * a header with a frame sync whose frame length can't be computed, counted by why. these only show up
+     * where the walk lost sync, or while a scan looks for it, so counting each one is not on the per frame path
+     */
+    static void rejected(int header) {
+        if (HeaderDecoder.version(header) == AudioVersion.RESERVED || HeaderDecoder.layer(header) == LayerVersion.RESERVED
+                || HeaderDecoder.hz(header) == -1) {
+            RESERVED_FIELDS.increment();
+        } else if (HeaderDecoder.kbps(header) == -1) {
+            BAD_BITRATES.increment();
+        } else if (HeaderDecoder.kbps(header) == 0) {
+            FREE_BITRATES.increment();
+        }
+    }
+
+    static void reservedField() {
+        RESERVED_FIELDS.increment();
+    }
+
+    static void badBitrate() {
+        BAD_BITRATES.increment();
+    }
+
+}
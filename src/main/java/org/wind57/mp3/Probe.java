@@ -0,0 +1,23 @@
+package org.wind57.mp3;
+
+/**
+ * what can be learned about a file from its first frame only.
+ *
+ * @param offset    where the first frame starts (after ID3v2 tags and junk)
+ * @param header    the first frame header
+ * @param vbrHeader Xing/Info/VBRI header found in the first frame, or null
+ */
+public record Probe(long fileSize, long offset, int header, VbrHeader vbrHeader) {
+
+    /**
+     * frames and duration straight from the Xing/Info/VBRI header, when there is one
+     */
+    public boolean hasVbrHeader() {
+        return vbrHeader != null && vbrHeader.frames() != -1;
+    }
+
+    public FrameHeader frameHeader() {
+        return new FrameHeader(header);
+    }
+
+}
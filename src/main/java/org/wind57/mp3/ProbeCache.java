@@ -0,0 +1,198 @@
+package org.wind57.mp3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * what probing a file found, remembered per path, as long as the file does not change : same size,
+ * same modification time and same file key (the inode, where the file system has one).
+ * checking that only needs the file attributes, the file itself is not opened.
+ * <p>
+ * at most 'capacity' files are kept, the least recently used ones are dropped first. the cache can be
+ * saved to a (binary, compact) file and loaded back, so that it survives restarts.
+ * safe to use from many threads.
+ */
+final class ProbeCache {
+
+    static final int DEFAULT_CAPACITY = 1_000_000;
+
+    private static final System.Logger LOGGER = System.getLogger(ProbeCache.class.getName());
+
+    // 'MP3C'
+    private static final int MAGIC = 0x4D503343;
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * what identifies one version of a file
+     */
+    record Identity(long size, long lastModified, String fileKey) {}
+
+    /**
+     * @param offset  of the first frame
+     * @param header  of the first frame
+     * @param vbrType   Xing/Info/VBRI header of the first frame, or null
+     * @param estimated frames and duration are estimated from the bitrate of the first frame (see
+     *                  {@link HeadTailProbe}), they were not counted
+     */
+    record Facts(long size, long offset, int header, long frames, long durationMillis, VbrHeader.Type vbrType,
+                 boolean estimated) {}
+
+    private record Entry(Identity identity, Facts facts) {}
+
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    ProbeCache(int capacity) {
+        // access order : iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * a cache with what was saved in 'store', or an empty one when there is no such file yet.
+     * a store that can't be read (damaged, cut short, not a cache) is logged and the cache starts empty :
+     * it only costs probing the files again, it is no reason to fail a whole batch
+     */
+    static ProbeCache load(Path store, int capacity) {
+        ProbeCache cache = new ProbeCache(capacity);
+        if (!Files.exists(store)) {
+            return cache;
+        }
+
+        VbrHeader.Type[] types = VbrHeader.Type.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException("not a probe cache : " + store);
+            }
+            // an older version can't tell estimates from counts, it is not trusted
+            if (in.readInt() != FORMAT_VERSION) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                Identity identity = new Identity(in.readLong(), in.readLong(), in.readUTF());
+                long offset = in.readLong();
+                int header = in.readInt();
+                long frames = in.readLong();
+                long durationMillis = in.readLong();
+                int vbrType = in.readByte();
+                boolean estimated = in.readBoolean();
+                Facts facts = new Facts(identity.size(), offset, header, frames, durationMillis,
+                    vbrType == -1 ? null : types[vbrType], estimated);
+                cache.entries.put(path, new Entry(identity, facts));
+            }
+        } catch (IOException | RuntimeException e) {
+            // an EOFException when cut short, an ArrayIndexOutOfBoundsException for a damaged type
+            LOGGER.log(System.Logger.Level.WARNING, "probe cache {0} can''t be read, starting empty : {1}", store, e);
+            return new ProbeCache(capacity);
+        }
+        return cache;
+    }
+
+    static Identity identity(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return new Identity(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                fileKey == null ? "" : fileKey.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param exact estimated facts are not enough, only counted ones are returned
+     * @return what is known about 'path', or null when it is not cached, the file changed since,
+     * or only an estimate is cached and 'exact' is set
+     */
+    synchronized Facts get(String path, Identity identity, boolean exact) {
+        Entry entry = entries.get(path);
+        if (entry == null || !entry.identity().equals(identity) || (exact && entry.facts().estimated())) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.facts();
+    }
+
+    synchronized void put(String path, Identity identity, Facts facts) {
+        entries.put(path, new Entry(identity, facts));
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * written next to 'store' first (into a temporary file of its own, removed again if anything fails) and
+     * then moved over it, a crash never leaves half a cache behind.
+     * least recently used entries are written first, so they are also the first to go when loaded
+     * into a smaller cache.
+     */
+    synchronized void save(Path store) {
+        Path temporary;
+        try {
+            temporary = Files.createTempFile(store.toAbsolutePath().getParent(), store.getFileName() + ".", ".tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Identity identity = entry.getValue().identity();
+                Facts facts = entry.getValue().facts();
+                out.writeUTF(entry.getKey());
+                out.writeLong(identity.size());
+                out.writeLong(identity.lastModified());
+                out.writeUTF(identity.fileKey());
+                out.writeLong(facts.offset());
+                out.writeInt(facts.header());
+                out.writeLong(facts.frames());
+                out.writeLong(facts.durationMillis());
+                out.writeByte(facts.vbrType() == null ? -1 : facts.vbrType().ordinal());
+                out.writeBoolean(facts.estimated());
+            }
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(temporary, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // nothing else to do
+        }
+    }
+
+}
@@ -0,0 +1,336 @@
+package org.wind57.mp3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * time -> byte offset, for every audio frame of a file.
+ * <p>
+ * offsets are kept as the distance to the previous frame, varint encoded (one or two bytes per frame,
+ * since frames are shorter than 16 KB, more only after junk or a tag between frames), and every INTERVAL
+ * frames the absolute offset is kept too.
+ * a lookup jumps to the closest of those and decodes at most INTERVAL - 1 varints from there.
+ * <p>
+ * it can be saved next to the mp3 (a 'sidecar' file), or in a directory of its own, and loaded back, as long
+ * as the mp3 did not change. built or loaded through {@link Mp3Parser#seekIndex(Path)}. immutable, safe to share.
+ */
+public final class SeekIndex {
+
+    static final int INTERVAL = 64;
+
+    static final String SIDECAR_EXTENSION = ".seek";
+
+    // 'MP3S'
+    private static final int MAGIC = 0x4D503353;
+    private static final int FORMAT_VERSION = 1;
+
+    private final long fileSize;
+    private final long lastModified;
+    private final int samplesPerFrame;
+    private final int hz;
+    private final long frames;
+
+    // offset of frame 0, INTERVAL, 2 * INTERVAL ...
+    private final long[] checkpoints;
+
+    // where, in 'deltas', the distance to the frame that follows a checkpoint is
+    private final int[] deltaStarts;
+
+    // distance from frame i - 1 to frame i, for i in [1, frames)
+    private final byte[] deltas;
+    private final int deltasLength;
+
+    private SeekIndex(long fileSize, long lastModified, int samplesPerFrame, int hz, long frames,
+                      long[] checkpoints, int[] deltaStarts, byte[] deltas, int deltasLength) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.samplesPerFrame = samplesPerFrame;
+        this.hz = hz;
+        this.frames = frames;
+        this.checkpoints = checkpoints;
+        this.deltaStarts = deltaStarts;
+        this.deltas = deltas;
+        this.deltasLength = deltasLength;
+    }
+
+    /**
+     * walks the whole file, the Xing/Info/VBRI frame (if any) is not part of the index
+     */
+    static SeekIndex build(String path) {
+        BasicFileAttributes attributes = attributes(Path.of(path));
+        FrameWalker walker = FrameWalker.walk(path);
+
+        Builder builder = new Builder();
+        int header = 0;
+        boolean first = true;
+        for (Frame frame : walker) {
+            if (first && walker.isVbrHeader(frame)) {
+                first = false;
+                continue;
+            }
+            first = false;
+            header = frame.header();
+            builder.add(frame.offset());
+        }
+
+        return builder.build(attributes.size(), attributes.lastModifiedTime().toMillis(),
+            HeaderDecoder.samplesPerFrame(header), HeaderDecoder.hz(header));
+    }
+
+    /**
+     * reads the sidecar of 'path' (next to it) if it is there and still matches the mp3, otherwise builds
+     * the index and writes the sidecar for next time
+     */
+    static SeekIndex loadOrBuild(String path) {
+        return loadOrBuildAt(path, Path.of(path + SIDECAR_EXTENSION));
+    }
+
+    /**
+     * the same, with the sidecar in 'directory' (for read only libraries), named after the file and a hash
+     * of its absolute path, so that files with the same name in other directories do not share one
+     */
+    static SeekIndex loadOrBuild(String path, Path directory) {
+        Path absolute = Path.of(path).toAbsolutePath().normalize();
+        long hash = XxHash64.hash(ByteBuffer.wrap(absolute.toString().getBytes(StandardCharsets.UTF_8)));
+        String name = absolute.getFileName() + "-" + Long.toHexString(hash) + SIDECAR_EXTENSION;
+        return loadOrBuildAt(path, directory.resolve(name));
+    }
+
+    /**
+     * a sidecar that can't be read (damaged, cut short, of another version) is built again,
+     * one that can't be written (a read only mount) is not an error : the index is only not kept
+     */
+    private static SeekIndex loadOrBuildAt(String path, Path sidecar) {
+        if (Files.exists(sidecar)) {
+            BasicFileAttributes attributes = attributes(Path.of(path));
+            try {
+                SeekIndex index = read(sidecar);
+                if (index.fileSize == attributes.size() && index.lastModified == attributes.lastModifiedTime().toMillis()) {
+                    return index;
+                }
+            } catch (RuntimeException e) {
+                // built again below
+            }
+        }
+
+        SeekIndex index = build(path);
+        try {
+            index.write(sidecar);
+        } catch (UncheckedIOException e) {
+            // not kept, built again next time
+        }
+        return index;
+    }
+
+    public long frames() {
+        return frames;
+    }
+
+    public long durationMillis() {
+        return frames == 0 ? 0 : frames * samplesPerFrame * 1000 / hz;
+    }
+
+    /**
+     * byte offset of frame 'frame', counted from 0 (the Xing/Info/VBRI frame is not a frame)
+     */
+    public long offsetOfFrame(long frame) {
+        if (frame < 0 || frame >= frames) {
+            throw new IllegalArgumentException("frame " + frame + " is outside of [0, " + frames + ")");
+        }
+        int checkpoint = (int) (frame / INTERVAL);
+        long offset = checkpoints[checkpoint];
+        int position = deltaStarts[checkpoint];
+        for (long i = (long) checkpoint * INTERVAL; i < frame; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = deltas[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            offset += delta;
+        }
+        return offset;
+    }
+
+    /**
+     * the frame that plays at 'millis', {@link #frames()} if that is past the end
+     */
+    public long frameOfMillis(long millis) {
+        return frames == 0 ? 0 : Math.min(Math.max(millis, 0) * hz / 1000 / samplesPerFrame, frames);
+    }
+
+    /**
+     * byte offset of the frame that holds 'sample', the last frame if it is past the end,
+     * -1 if the index has no frames
+     */
+    public long offsetOfSample(long sample) {
+        if (frames == 0) {
+            return -1;
+        }
+        return offsetOfFrame(Math.min(Math.max(sample, 0) / samplesPerFrame, frames - 1));
+    }
+
+    /**
+     * byte offset of the frame that plays at 'millis', the last frame if it is past the end,
+     * -1 if the index has no frames
+     */
+    public long offsetOfMillis(long millis) {
+        return offsetOfSample(millis * hz / 1000);
+    }
+
+    /**
+     * only the varints and a few numbers are written, checkpoints are rebuilt when the file is read back.
+     * the file is written next to 'sidecar' first and then moved over it, so readers never see half of it.
+     * every writer gets a temporary file of its own : two processes that index the same mp3 at once both
+     * move a whole sidecar into place, the last one stays.
+     */
+    void write(Path sidecar) {
+        Path temporary;
+        try {
+            temporary = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName() + ".", ".tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeInt(samplesPerFrame);
+            out.writeInt(hz);
+            out.writeLong(frames);
+            out.writeLong(frames == 0 ? 0 : checkpoints[0]);
+            out.writeInt(deltasLength);
+            out.write(deltas, 0, deltasLength);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static SeekIndex read(Path sidecar) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("not a seek index : " + sidecar);
+            }
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            int samplesPerFrame = in.readInt();
+            int hz = in.readInt();
+            long frames = in.readLong();
+            long offset = in.readLong();
+            int deltasLength = in.readInt();
+            // a damaged length would allocate more than the file holds
+            if (frames < 0 || deltasLength < 0 || deltasLength > Files.size(sidecar)) {
+                throw new IllegalStateException("damaged seek index : " + sidecar);
+            }
+            byte[] deltas = new byte[deltasLength];
+            in.readFully(deltas);
+
+            Builder builder = new Builder();
+            int position = 0;
+            for (long i = 0; i < frames; i++) {
+                if (i > 0) {
+                    long delta = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = deltas[position++];
+                        delta |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    offset += delta;
+                }
+                builder.add(offset);
+            }
+            return builder.build(fileSize, lastModified, samplesPerFrame, hz);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // nothing else to do
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Builder {
+
+        private long frames;
+        private long previous;
+
+        private long[] checkpoints = new long[16];
+        private int[] deltaStarts = new int[16];
+        private int checkpointsLength;
+
+        private byte[] deltas = new byte[1024];
+        private int deltasLength;
+
+        void add(long offset) {
+            if (frames > 0) {
+                long delta = offset - previous;
+                // a long takes at most 10 varint bytes
+                if (deltas.length - deltasLength < 10) {
+                    deltas = Arrays.copyOf(deltas, deltas.length * 2);
+                }
+                // 7 bits at a time, lowest first, the highest bit says 'more bytes follow'
+                while (delta >= 0x80) {
+                    deltas[deltasLength++] = (byte) (delta | 0x80);
+                    delta >>>= 7;
+                }
+                deltas[deltasLength++] = (byte) delta;
+            }
+
+            if (frames % INTERVAL == 0) {
+                if (checkpointsLength == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpointsLength * 2);
+                    deltaStarts = Arrays.copyOf(deltaStarts, checkpointsLength * 2);
+                }
+                checkpoints[checkpointsLength] = offset;
+                deltaStarts[checkpointsLength] = deltasLength;
+                checkpointsLength++;
+            }
+
+            previous = offset;
+            frames++;
+        }
+
+        SeekIndex build(long fileSize, long lastModified, int samplesPerFrame, int hz) {
+            return new SeekIndex(fileSize, lastModified, samplesPerFrame, hz, frames,
+                Arrays.copyOf(checkpoints, checkpointsLength), Arrays.copyOf(deltaStarts, checkpointsLength),
+                deltas, deltasLength);
+        }
+    }
+
+}
@@ -0,0 +1,325 @@
+package org.wind57.mp3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.wind57.mp3.FrameProvider.hasFrameSync;
+import static org.wind57.mp3.HeaderDecoder.frameLength;
+import static org.wind57.mp3.SyncScanner.CHAIN;
+import static org.wind57.mp3.SyncScanner.HIGHS_32;
+import static org.wind57.mp3.SyncScanner.ID3V2_FOOTER_FLAG;
+import static org.wind57.mp3.SyncScanner.ID3V2_HEADER_LENGTH;
+import static org.wind57.mp3.SyncScanner.SAME_STREAM_MASK;
+import static org.wind57.mp3.SyncScanner.isSameStreamOrTrailingTag;
+import static org.wind57.mp3.SyncScanner.isTrailingTag;
+import static org.wind57.mp3.SyncScanner.syncsafe;
+
+/**
+ * push based parser for a stream that arrives in chunks (network relays), where a chunk can end anywhere,
+ * even in the middle of a header. a frame is handed to the {@link FrameListener} as soon as its last byte arrives.
+ * <p>
+ * frames that are whole inside a chunk are handed over as a slice of that chunk, nothing is copied. only the
+ * bytes that span chunks are copied, into a fixed buffer that holds the few frames a resync looks at, so
+ * memory does not grow with the stream.
+ * <p>
+ * frames are trusted the way {@link FrameWalker} trusts them, so both find the same frames in the same bytes :
+ * a frame is handed over once the 4 bytes after it are there and hold a header of the same stream (or a tag that
+ * ends a file). after a loss of sync, the parser relocks only on a chain of headers, like
+ * {@link SyncScanner#nextSync}. ID3v2 tags are skipped at the start, and in the middle of the stream too (relays
+ * insert them), where the frames after the tag are searched for like after junk.
+ * not thread safe, one instance per stream.
+ */
+public final class StreamParser {
+
+    /**
+     * 'frame' is positioned on the header and holds exactly one frame. it is only valid during the call,
+     * its bytes can be overwritten after it returns.
+     */
+    public interface FrameListener {
+        void onFrame(long offset, int header, ByteBuffer frame);
+    }
+
+    // a chain of CHAIN + 1 of the biggest frames (2881 bytes), plus the header after them
+    private static final int CARRY_CAPACITY = 16 * 1024;
+
+    private final FrameListener frames;
+    private final ParseListener listener;
+
+    // bytes that could not be handled yet, because what they start is not complete
+    private final ByteBuffer carry = ByteBuffer.allocate(CARRY_CAPACITY);
+
+    // position, in the stream, of the first byte that was not consumed yet
+    private long offset;
+
+    // bytes of an ID3v2 tag that are still to come, and are to be dropped
+    private long skip;
+
+    // a frame starts here, as far as the last frame (or the start of the stream) says : one header after
+    // it is enough to trust it. otherwise (after a loss of sync) it takes a chain of them
+    private boolean locked = true;
+    private long lostAt = -1;
+
+    // anything other than an ID3v2 tag was seen
+    private boolean started;
+
+    // no more bytes will come, what is left is decided on what is there
+    private boolean ended;
+
+    private ByteBuffer readBuffer;
+
+    public StreamParser(FrameListener frames) {
+        this(frames, ParseListener.NONE);
+    }
+
+    public StreamParser(FrameListener frames, ParseListener listener) {
+        this.frames = frames;
+        this.listener = listener;
+    }
+
+    /**
+     * consumes all of 'chunk'. what can't be handled yet (a partial frame) is kept for the next call
+     */
+    public void accept(ByteBuffer chunk) {
+        while (true) {
+            if (carry.position() > 0) {
+                if (!acceptCarry(chunk)) {
+                    return;
+                }
+            } else if (chunk.hasRemaining()) {
+                int consumed = step(chunk);
+                if (consumed < 0) {
+                    // not enough bytes to decide, keep them for the next chunk
+                    carry.put(chunk);
+                    return;
+                }
+                chunk.position(chunk.position() + consumed);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * one read from 'channel', everything that was read is parsed. works for non-blocking channels too
+     * (0 is returned when nothing was there). at the end of the stream, {@link #finish()} is called and -1 is returned.
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        }
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        if (read == -1) {
+            finish();
+            return -1;
+        }
+        readBuffer.flip();
+        accept(readBuffer);
+        return read;
+    }
+
+    /**
+     * end of the stream : what is still held is decided now, the way the end of a file decides it for a walk.
+     * a last frame is handed over if it is complete. no more chunks can be accepted after this
+     */
+    public void finish() {
+        ended = true;
+        ByteBuffer pending = carry.flip();
+        while (pending.hasRemaining()) {
+            pending.position(pending.position() + step(pending));
+        }
+        carry.clear();
+    }
+
+    /**
+     * the first byte, in the stream, that was not consumed yet
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * moves just enough bytes from 'chunk' to 'carry' for the next step, and makes that step.
+     * false when 'chunk' ran out before that
+     */
+    private boolean acceptCarry(ByteBuffer chunk) {
+        while (true) {
+            ByteBuffer pending = carry.duplicate().flip();
+            int consumed = step(pending);
+            if (consumed >= 0) {
+                carry.flip().position(consumed);
+                carry.compact();
+                return true;
+            }
+            int missing = -consumed - pending.remaining();
+            if (!chunk.hasRemaining()) {
+                return false;
+            }
+            int take = Math.min(missing, chunk.remaining());
+            carry.put(chunk.slice(chunk.position(), take));
+            chunk.position(chunk.position() + take);
+        }
+    }
+
+    /**
+     * looks at what starts at data.position() : the number of bytes consumed, or minus the number of bytes
+     * that are needed before anything can be decided (never, once the stream 'ended')
+     */
+    private int step(ByteBuffer data) {
+        int position = data.position();
+        int remaining = data.remaining();
+
+        if (skip > 0) {
+            int skipped = (int) Math.min(skip, remaining);
+            skip -= skipped;
+            offset += skipped;
+            return skipped;
+        }
+
+        if (data.get(position) == 'I') {
+            if (remaining < ID3V2_HEADER_LENGTH && !ended) {
+                return -ID3V2_HEADER_LENGTH;
+            }
+            if (remaining >= ID3V2_HEADER_LENGTH && isId3v2(data, position)) {
+                if (started) {
+                    // in the middle of the stream : like junk, the frames after it have to chain
+                    if (lostAt == -1) {
+                        lostAt = offset;
+                    }
+                    locked = false;
+                }
+                skip = ID3V2_HEADER_LENGTH + syncsafe(data.getInt(position + 6))
+                    + ((data.get(position + 5) & ID3V2_FOOTER_FLAG) != 0 ? ID3V2_HEADER_LENGTH : 0);
+                return step(data);
+            }
+        }
+        started = true;
+
+        if (remaining < 4) {
+            if (!ended) {
+                return -4;
+            }
+            // too short for a header
+            offset += remaining;
+            return remaining;
+        }
+
+        if (!locked) {
+            int chain = chain(data, position, remaining);
+            if (chain < 0) {
+                return chain;
+            }
+            if (chain == 0) {
+                return lost(data, position, remaining);
+            }
+            locked = true;
+            if (lostAt != -1) {
+                listener.onResync(lostAt, offset);
+                lostAt = -1;
+            }
+        }
+
+        int length = frameAt(data, position, remaining);
+        if (length < 0) {
+            return length;
+        }
+        if (length == 0) {
+            return lost(data, position, remaining);
+        }
+        return emit(data, data.getInt(position), length);
+    }
+
+    /**
+     * the same check as {@link FrameWalker#frameAt} : the length of the frame at 'position', 0 if it is not
+     * taken as one, or minus the number of bytes needed to tell
+     */
+    private int frameAt(ByteBuffer data, int position, int remaining) {
+        int header = data.getInt(position);
+        if (!hasFrameSync(header)) {
+            return 0;
+        }
+        int length = frameLength(header);
+        if (length == 0) {
+            ParserMetrics.rejected(header);
+            return 0;
+        }
+        if (remaining < length + 4) {
+            if (!ended) {
+                return -(length + 4);
+            }
+            // the stream ends right after this frame, or in the middle of it
+            return remaining >= length ? length : 0;
+        }
+        return isSameStreamOrTrailingTag(data.getInt(position + length), header) ? length : 0;
+    }
+
+    /**
+     * the same check as {@link SyncScanner#isConfirmedFrame} : 1 if the header at 'position' starts a chain of
+     * CHAIN more headers of its stream (or one cut short by the end of the stream or a tag), 0 if it does not,
+     * or minus the number of bytes needed to tell
+     */
+    private int chain(ByteBuffer data, int position, int remaining) {
+        if (data.get(position) != (byte) 0xFF) {
+            return 0;
+        }
+        int first = data.getInt(position);
+        if (hasFrameSync(first) && frameLength(first) == 0) {
+            ParserMetrics.rejected(first);
+            return 0;
+        }
+        int header = first;
+        int end = 0;
+        for (int i = 0; i <= CHAIN; i++) {
+            if (!hasFrameSync(header) || (header & SAME_STREAM_MASK) != (first & SAME_STREAM_MASK)) {
+                return 0;
+            }
+            int length = frameLength(header);
+            if (length == 0) {
+                return 0;
+            }
+            end += length;
+            if (end + 4 > remaining) {
+                if (!ended) {
+                    return -(end + 4);
+                }
+                return end <= remaining ? 1 : 0;
+            }
+            header = data.getInt(position + end);
+            if (isTrailingTag(header)) {
+                return 1;
+            }
+        }
+        return 1;
+    }
+
+    private int emit(ByteBuffer data, int header, int length) {
+        frames.onFrame(offset, header, data.slice(data.position(), length).asReadOnlyBuffer());
+        offset += length;
+        return length;
+    }
+
+    // not a frame here, drop everything up to the next 0xFF (or 'I', for an ID3v2 tag) and search for a chain
+    private int lost(ByteBuffer data, int position, int remaining) {
+        if (lostAt == -1) {
+            lostAt = offset;
+        }
+        locked = false;
+        int consumed = 1;
+        while (consumed < remaining) {
+            byte b = data.get(position + consumed);
+            if (b == (byte) 0xFF || b == 'I') {
+                break;
+            }
+            consumed++;
+        }
+        offset += consumed;
+        return consumed;
+    }
+
+    private static boolean isId3v2(ByteBuffer data, int position) {
+        return data.get(position + 1) == 'D' && data.get(position + 2) == '3'
+            && (data.getInt(position + 6) & HIGHS_32) == 0;
+    }
+
+}
@@ -0,0 +1,168 @@
+package org.wind57.mp3;
+
+import static org.wind57.mp3.FrameProvider.hasFrameSync;
+import static org.wind57.mp3.HeaderDecoder.frameLength;
+
+/**
+ * finds where the audio starts (past any ID3v2 tags) and where the next real frame is,
+ * when the bytes at hand are not a frame header (junk, truncated frames, other tags).
+ */
+final class SyncScanner {
+
+    // how many headers must follow a candidate, each where the previous frame ends,
+    // before that candidate is believed to be a frame and not payload bytes that look like one
+    static final int CHAIN = 3;
+
+    // version, layer and sample rate can't change between frames of the same stream
+    // 20 to 17, 11 and 10 bits are set 0000_0000_0001_1110_0000_1100_0000_0000
+    static final int SAME_STREAM_MASK = 1969152;
+
+    // 'ID3' + version (2 bytes) + flags (1 byte) + size (4 bytes)
+    static final int ID3V2_HEADER_LENGTH = 10;
+
+    // 0001_0000 in the flags byte : a 10 bytes footer follows the tag
+    static final int ID3V2_FOOTER_FLAG = 16;
+
+    private static final int TAG = 0x544147;
+    private static final int APE = 0x415045;
+    private static final int LYR = 0x4C5952;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    static final int HIGHS_32 = 0x80808080;
+
+    /**
+     * first byte after all the ID3v2 tags at the start of the file (some files carry more than one),
+     * or 0 if there are none
+     */
+    static long audioStart(ByteSource file) {
+        long position = 0;
+        long length;
+        while ((length = id3v2Length(file, position)) != 0) {
+            position += length;
+        }
+        return Math.min(position, file.size());
+    }
+
+    /**
+     * length of the ID3v2 tag (header, body and footer) at 'position', 0 if there is none
+     */
+    static long id3v2Length(ByteSource file, long position) {
+        if (position + ID3V2_HEADER_LENGTH > file.size() || !isId3v2(file, position)) {
+            return 0;
+        }
+        int flags = file.get(position + 5);
+        long length = ID3V2_HEADER_LENGTH + syncsafe(file.getInt(position + 6));
+        return (flags & ID3V2_FOOTER_FLAG) != 0 ? length + ID3V2_HEADER_LENGTH : length;
+    }
+
+    /**
+     * position of the first frame at or after 'from' that starts a chain of consistent headers,
+     * or -1 if there is none until the end of the file
+     */
+    static long nextSync(ByteSource file, long from) {
+        return nextSync(file, from, file.size() - 3);
+    }
+
+    /**
+     * the same, but only candidates before 'until' are looked at, for sources that do not hold the whole file
+     */
+    static long nextSync(ByteSource file, long from, long until) {
+        long last = until - 1;
+        long position = from;
+
+        while (position <= last) {
+            if (position + 8 > file.size()) {
+                if (isConfirmedFrame(file, position)) {
+                    return position;
+                }
+                position++;
+                continue;
+            }
+
+            // look at 8 bytes at once: a frame sync starts with 1111_1111, so the whole word
+            // is skipped if none of its bytes is 0xFF (a zero byte in ~word)
+            long inverted = ~file.getLong(position);
+            if (((inverted - ONES) & ~inverted & HIGHS) != 0) {
+                for (int i = 0; i < 8 && position + i <= last; i++) {
+                    if (isConfirmedFrame(file, position + i)) {
+                        return position + i;
+                    }
+                }
+            }
+            position += 8;
+        }
+        return -1;
+    }
+
+    /**
+     * a valid header at 'position', followed by CHAIN more headers of the same stream
+     * (or by the end of the file, or by one of the tags that sit at the end of a file)
+     */
+    static boolean isConfirmedFrame(ByteSource file, long position) {
+        if (file.get(position) != (byte) 0xFF) {
+            return false;
+        }
+        int first = file.getInt(position);
+        if (hasFrameSync(first) && frameLength(first) == 0) {
+            ParserMetrics.rejected(first);
+            return false;
+        }
+        int header = first;
+        for (int i = 0; i <= CHAIN; i++) {
+            if (!hasFrameSync(header) || (header & SAME_STREAM_MASK) != (first & SAME_STREAM_MASK)) {
+                return false;
+            }
+            int length = frameLength(header);
+            if (length == 0 || position + length > file.size()) {
+                return false;
+            }
+            position += length;
+            if (position + 4 > file.size()) {
+                return true;
+            }
+            header = file.getInt(position);
+            if (isTrailingTag(header)) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * what follows a frame (that ends at 'next') is either another header of the same stream,
+     * the end of the file or one of the tags that sit at the end of a file (ID3v1, APE, Lyrics3)
+     */
+    static boolean isFollowedBySameStream(ByteSource file, long next, int header) {
+        if (next + 4 > file.size()) {
+            return true;
+        }
+        return isSameStreamOrTrailingTag(file.getInt(next), header);
+    }
+
+    // 'following' are the 4 bytes right after a frame with 'header'
+    static boolean isSameStreamOrTrailingTag(int following, int header) {
+        if (hasFrameSync(following)) {
+            return (following & SAME_STREAM_MASK) == (header & SAME_STREAM_MASK);
+        }
+        return isTrailingTag(following);
+    }
+
+    // first 3 bytes of 'TAG', 'APETAGEX', 'LYRICSBEGIN'
+    static boolean isTrailingTag(int word) {
+        int tag = word >>> 8;
+        return tag == TAG || tag == APE || tag == LYR;
+    }
+
+    private static boolean isId3v2(ByteSource file, long position) {
+        return file.get(position) == 'I' && file.get(position + 1) == 'D' && file.get(position + 2) == '3'
+            // the size is syncsafe : the highest bit of every byte is zero
+            && (file.getInt(position + 6) & HIGHS_32) == 0;
+    }
+
+    // 4 bytes with 7 bits each : 0xxx_xxxx 0xxx_xxxx 0xxx_xxxx 0xxx_xxxx
+    static int syncsafe(int size) {
+        return (size & 0x7F) | (size & 0x7F00) >> 1 | (size & 0x7F0000) >> 2 | (size & 0x7F000000) >> 3;
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.wind57.mp3;
+
+/**
+ * what a Xing/Info or VBRI header says about the whole file, -1 for fields that are not present.
+ *
+ * @param frames           number of audio frames (the frame holding this header is not counted)
+ * @param bytes            number of bytes of audio
+ * @param toc              Xing : 100 entries, entry i is the position (0..255, as a fraction of 'bytes') of i% of the duration.
+ *                         VBRI : entry i is the number of bytes of 'framesPerTocEntry' frames.
+ *                         null when not present
+ * @param encoder          LAME (or ffmpeg) encoder version, null when there is no LAME extension
+ * @param encoderDelay     samples added by the encoder at the start
+ * @param encoderPadding   samples added by the encoder at the end
+ */
+public record VbrHeader(Type type, long frames, long bytes, int[] toc, int framesPerTocEntry,
+                 String encoder, int encoderDelay, int encoderPadding) {
+
+    public enum Type {
+        // 'Xing' is written for VBR files, 'Info' for CBR ones
+        XING,
+        INFO,
+        VBRI
+    }
+
+    public long durationMillis(int header) {
+        if (frames == -1) {
+            return -1;
+        }
+        return frames * HeaderDecoder.samplesPerFrame(header) * 1000 / HeaderDecoder.hz(header);
+    }
+
+}
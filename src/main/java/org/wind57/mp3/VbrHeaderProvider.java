@@ -0,0 +1,149 @@
+package org.wind57.mp3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * the first frame of most files is not audio, but a Xing/Info, or a VBRI header.
+ * it carries the number of frames and bytes of the whole file (and a seek table),
+ * which is enough for the duration without walking the file.
+ * LAME (and ffmpeg) add their own extension after the Xing/Info header, with the encoder delay and padding.
+ */
+final class VbrHeaderProvider {
+
+    // 'Xing' 'Info' 'VBRI' as ints
+    private static final int XING = 0x58696E67;
+    private static final int INFO = 0x496E666F;
+    private static final int VBRI = 0x56425249;
+
+    // Xing/Info flags : which optional fields follow
+    private static final int FRAMES_FLAG = 1;
+    private static final int BYTES_FLAG = 2;
+    private static final int TOC_FLAG = 4;
+    private static final int QUALITY_FLAG = 8;
+
+    private static final int XING_TOC_LENGTH = 100;
+
+    // VBRI always sits right after 32 bytes of (empty) side information
+    private static final int VBRI_OFFSET = 4 + 32;
+
+    // fixed part of VBRI : id, version, delay, quality, bytes, frames, toc entries, scale, entry size, frames per entry
+    private static final int VBRI_LENGTH = 26;
+
+    // encoder version string (9 bytes) ... encoder delay and padding (3 bytes) start at 21
+    private static final int LAME_LENGTH = 24;
+
+    /**
+     * @return the header found in the frame at 'offset', or null when that frame is plain audio
+     */
+    static VbrHeader vbr(ByteSource file, long offset, int header, int length) {
+        if (HeaderDecoder.layer(header) != LayerVersion.L3) {
+            return null;
+        }
+
+        long end = Math.min(offset + length, file.size());
+        long xing = offset + 4 + sideInformationLength(header);
+        if (xing + 8 <= end) {
+            int id = file.getInt(xing);
+            if (id == XING || id == INFO) {
+                return xing(file, xing, end, id == XING ? VbrHeader.Type.XING : VbrHeader.Type.INFO);
+            }
+        }
+
+        long vbri = offset + VBRI_OFFSET;
+        if (vbri + VBRI_LENGTH <= end && file.getInt(vbri) == VBRI) {
+            return vbri(file, vbri, end);
+        }
+
+        return null;
+    }
+
+    // bytes of side information in a Layer III frame, that is where Xing/Info is written
+    static int sideInformationLength(int header) {
+        boolean mono = HeaderDecoder.channelMode(header) == 3;
+        if (HeaderDecoder.version(header) == AudioVersion.V1) {
+            return mono ? 17 : 32;
+        }
+        return mono ? 9 : 17;
+    }
+
+    private static VbrHeader xing(ByteSource file, long position, long end, VbrHeader.Type type) {
+        int flags = file.getInt(position + 4);
+        position += 8;
+
+        long frames = -1;
+        if ((flags & FRAMES_FLAG) != 0 && position + 4 <= end) {
+            frames = Integer.toUnsignedLong(file.getInt(position));
+            position += 4;
+        }
+
+        long bytes = -1;
+        if ((flags & BYTES_FLAG) != 0 && position + 4 <= end) {
+            bytes = Integer.toUnsignedLong(file.getInt(position));
+            position += 4;
+        }
+
+        int[] toc = null;
+        if ((flags & TOC_FLAG) != 0 && position + XING_TOC_LENGTH <= end) {
+            toc = new int[XING_TOC_LENGTH];
+            for (int i = 0; i < XING_TOC_LENGTH; i++) {
+                toc[i] = Byte.toUnsignedInt(file.get(position + i));
+            }
+            position += XING_TOC_LENGTH;
+        }
+
+        if ((flags & QUALITY_FLAG) != 0) {
+            position += 4;
+        }
+
+        String encoder = null;
+        int delay = -1;
+        int padding = -1;
+        if (position + LAME_LENGTH <= end && isLame(file, position)) {
+            byte[] version = new byte[9];
+            for (int i = 0; i < version.length; i++) {
+                version[i] = file.get(position + i);
+            }
+            encoder = new String(version, StandardCharsets.US_ASCII).trim();
+
+            // 12 bits of delay followed by 12 bits of padding
+            int delayAndPadding = file.getInt(position + 20) & 0xFFFFFF;
+            delay = delayAndPadding >>> 12;
+            padding = delayAndPadding & 0xFFF;
+        }
+
+        return new VbrHeader(type, frames, bytes, toc, 0, encoder, delay, padding);
+    }
+
+    private static VbrHeader vbri(ByteSource file, long position, long end) {
+        int delay = Short.toUnsignedInt((short) (file.getInt(position + 4) & 0xFFFF));
+        long bytes = Integer.toUnsignedLong(file.getInt(position + 10));
+        long frames = Integer.toUnsignedLong(file.getInt(position + 14));
+        int entries = file.getInt(position + 18) >>> 16;
+        int scale = file.getInt(position + 18) & 0xFFFF;
+        int entrySize = file.getInt(position + 22) >>> 16;
+        int framesPerEntry = file.getInt(position + 22) & 0xFFFF;
+
+        // each entry is the (scaled down) number of bytes of 'framesPerEntry' frames
+        int[] toc = null;
+        long tocStart = position + VBRI_LENGTH;
+        if (entrySize >= 1 && entrySize <= 4 && tocStart + (long) entries * entrySize <= end) {
+            toc = new int[entries];
+            for (int i = 0; i < entries; i++) {
+                int entry = 0;
+                for (int j = 0; j < entrySize; j++) {
+                    entry = entry << 8 | Byte.toUnsignedInt(file.get(tocStart + (long) i * entrySize + j));
+                }
+                toc[i] = entry * scale;
+            }
+        }
+
+        return new VbrHeader(VbrHeader.Type.VBRI, frames, bytes, toc, framesPerEntry, null, delay, -1);
+    }
+
+    // 'LAME' or, for files written by ffmpeg, 'Lavf' / 'Lavc'
+    private static boolean isLame(ByteSource file, long position) {
+        int id = file.getInt(position);
+        return id == 0x4C414D45 || id == 0x4C617666 || id == 0x4C617663;
+    }
+
+}
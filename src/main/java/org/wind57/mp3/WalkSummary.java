@@ -0,0 +1,10 @@
+package org.wind57.mp3;
+
+/**
+ * what a walk over every frame of a file found, the Xing/Info/VBRI frame is not counted
+ *
+ * @param bytes         bytes of all the audio frames
+ * @param crcChecked    frames whose CRC was verified, 0 when CRCs were not verified
+ * @param crcMismatches frames whose CRC did not match
+ */
+public record WalkSummary(long frames, long bytes, long durationMillis, long crcChecked, long crcMismatches) {}
@@ -0,0 +1,158 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XXH64 (seed 0), a fast non cryptographic 64 bit hash, that can be fed a piece at a time.
+ * input is read 8 bytes at a time, little endian, as the reference implementation does.
+ * not thread safe.
+ */
+final class XxHash64 {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    // bytes are consumed in stripes of 4 longs, one per accumulator
+    private static final int STRIPE = 32;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long total;
+
+    // the start of a stripe that is not complete yet
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer word = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+    XxHash64() {
+        reset();
+    }
+
+    void reset() {
+        v1 = PRIME_1 + PRIME_2;
+        v2 = PRIME_2;
+        v3 = 0;
+        v4 = -PRIME_1;
+        total = 0;
+        pending.clear();
+    }
+
+    /**
+     * hashes the remaining bytes of 'data', its position is not moved
+     */
+    static long hash(ByteBuffer data) {
+        XxHash64 hash = new XxHash64();
+        hash.update(data);
+        return hash.digest();
+    }
+
+    /**
+     * adds the remaining bytes of 'data', its position is not moved
+     */
+    void update(ByteBuffer data) {
+        ByteBuffer input = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        total += input.remaining();
+
+        if (pending.position() > 0) {
+            int take = Math.min(pending.remaining(), input.remaining());
+            pending.put(pending.position(), input, input.position(), take);
+            pending.position(pending.position() + take);
+            input.position(input.position() + take);
+            if (pending.hasRemaining()) {
+                return;
+            }
+            stripe(pending, 0);
+            pending.clear();
+        }
+
+        int position = input.position();
+        int limit = input.limit();
+        for (; position + STRIPE <= limit; position += STRIPE) {
+            stripe(input, position);
+        }
+
+        pending.put(0, input, position, limit - position);
+        pending.position(limit - position);
+    }
+
+    /**
+     * adds the 8 bytes of 'value', little endian
+     */
+    void update(long value) {
+        if (pending.remaining() >= 8) {
+            total += 8;
+            pending.putLong(value);
+            if (!pending.hasRemaining()) {
+                stripe(pending, 0);
+                pending.clear();
+            }
+        } else {
+            update(word.putLong(0, value));
+        }
+    }
+
+    /**
+     * the hash of everything added so far, more can be added after
+     */
+    long digest() {
+        long hash;
+        if (total >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME_5;
+        }
+        hash += total;
+
+        // what is left of the last stripe : 8 bytes, then 4, then one at a time
+        int length = pending.position();
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash ^= round(0, pending.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        if (i + 4 <= length) {
+            hash ^= Integer.toUnsignedLong(pending.getInt(i)) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            hash ^= Byte.toUnsignedLong(pending.get(i)) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void stripe(ByteBuffer input, int position) {
+        v1 = round(v1, input.getLong(position));
+        v2 = round(v2, input.getLong(position + 8));
+        v3 = round(v3, input.getLong(position + 16));
+        v4 = round(v4, input.getLong(position + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * PRIME_1 + PRIME_4;
+    }
+
+}
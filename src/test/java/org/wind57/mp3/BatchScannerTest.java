@@ -0,0 +1,61 @@
+package org.wind57.mp3;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchScannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void oneLinePerFileAndUnreadableInputsAreNotFiles() throws Exception {
+        Path library = Files.createDirectories(directory.resolve("library/album"));
+        new Mp3Files(61).frames(30, 9).write(library.resolve("one.mp3"));
+        new Mp3Files(62).frames(30, 5, 14).write(library.resolve("two.MP3"));
+        new Mp3Files(63).junk(2000).write(library.resolve("junk.mp3"));
+        Files.writeString(library.resolve("notes.txt"), "not an mp3");
+
+        StringWriter out = new StringWriter();
+        BatchScanner scanner = new BatchScanner(BatchScanner.Format.CSV, 4, null, false);
+        BatchScanner.Totals totals = scanner.scan(
+            List.of(directory.resolve("library").toString(), "@" + directory.resolve("missing.txt")), new PrintWriter(out));
+
+        assertEquals(new BatchScanner.Totals(3, 1, 1), totals);
+        List<String> lines = out.toString().lines().toList();
+        // the header, 3 files and the list that could not be read
+        assertEquals(5, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith(library.resolve("one.mp3") + ",") && line.contains(",30,")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("missing.txt") && line.contains("NoSuchFileException")));
+    }
+
+    @Test
+    void whatATaskThrowsIsNotLost() {
+        Set<Path> done = ConcurrentHashMap.newKeySet();
+        List<String> inputs = List.of("a.mp3", "b.mp3", "c.mp3");
+
+        AssertionError error = assertThrows(AssertionError.class, () ->
+            BatchScanner.forEachFile(inputs, 2, (path, e) -> { }, path -> {
+                done.add(path);
+                if (path.toString().equals("b.mp3")) {
+                    throw new AssertionError("b");
+                }
+            }));
+
+        assertEquals("b", error.getMessage());
+        assertEquals(3, done.size());
+    }
+
+}
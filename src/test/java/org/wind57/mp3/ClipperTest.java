@@ -0,0 +1,129 @@
+package org.wind57.mp3;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClipperTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void theClipIsTheFramesOfTheSource() throws Exception {
+        // junk in the middle of the clip is left out
+        Path source = new Mp3Files(121).id3v2(300).frames(40, 5, 9, 14).junk(777).frames(40, 5, 9, 14).id3v1()
+            .write(directory.resolve("source.mp3"));
+        Path target = directory.resolve("clip.mp3");
+
+        WalkSummary summary = Clipper.clip(source.toString(), target, 10, 60, false);
+
+        List<Frame> frames = walk(source);
+        byte[] bytes = Files.readAllBytes(source);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (Frame frame : frames.subList(10, 60)) {
+            expected.write(bytes, (int) frame.offset(), frame.length());
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(target));
+        assertEquals(50, summary.frames());
+        assertEquals(expected.size(), summary.bytes());
+        assertEquals(FrameWalker.walk(target.toString()).summary(), summary);
+    }
+
+    @Test
+    void theXingFrameDescribesTheClip() throws Exception {
+        Path source = new Mp3Files(122).frames(300, 5, 9, 14).write(directory.resolve("vbr.mp3"));
+        Path target = directory.resolve("clip.mp3");
+
+        Clipper.clip(source.toString(), target, 100, 250, true);
+
+        VbrHeader vbr = FrameProvider.probe(target.toString()).vbrHeader();
+        assertEquals(VbrHeader.Type.XING, vbr.type());
+        assertEquals(150, vbr.frames());
+        assertEquals(Files.size(target), vbr.bytes());
+
+        // entry i : where the frame at i% of the clip starts, out of 256
+        List<Frame> frames = walk(target);
+        assertEquals(151, frames.size());
+        int[] toc = new int[100];
+        for (int i = 0; i < 100; i++) {
+            long offset = frames.get(1 + i * 150 / 100).offset();
+            toc[i] = (int) Math.min(255, offset * 256 / vbr.bytes());
+        }
+        assertArrayEquals(toc, vbr.toc());
+
+        // the Xing frame is not a frame of the clip
+        assertEquals(150, FrameWalker.walk(target.toString()).summary().frames());
+    }
+
+    @Test
+    void constantBitrateClipsGetAnInfoFrame() {
+        Path source = new Mp3Files(123).cbr(100, 9).write(directory.resolve("cbr.mp3"));
+        Path target = directory.resolve("clip.mp3");
+
+        Clipper.clip(source.toString(), target, 0, 100, true);
+
+        VbrHeader vbr = FrameProvider.probe(target.toString()).vbrHeader();
+        assertEquals(VbrHeader.Type.INFO, vbr.type());
+        assertEquals(100, vbr.frames());
+    }
+
+    @Test
+    void framesOutsideOfTheSourceAreRejected() {
+        String source = new Mp3Files(124).frames(50, 9).write(directory.resolve("short.mp3")).toString();
+        Path target = directory.resolve("clip.mp3");
+
+        assertThrows(IllegalArgumentException.class, () -> Clipper.clip(source, target, 10, 51, false));
+        assertThrows(IllegalArgumentException.class, () -> Clipper.clip(source, target, -1, 10, false));
+        assertThrows(IllegalArgumentException.class, () -> Clipper.clip(source, target, 20, 20, false));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void theSeekIndexIsOnlyKeptWhenAskedFor() throws Exception {
+        Path source = new Mp3Files(125).frames(50, 9).write(directory.resolve("song.mp3"));
+        Path sidecar = directory.resolve("song.mp3.seek");
+
+        Clipper.run(new String[]{"--clip", source.toString(), "10", "20", directory.resolve("a.mp3").toString(), "--frames"});
+        assertFalse(Files.exists(sidecar));
+
+        Clipper.run(new String[]{"--clip", source.toString(), "10", "20", directory.resolve("b.mp3").toString(), "--frames",
+            "--seek-index"});
+        assertTrue(Files.exists(sidecar));
+        assertArrayEquals(Files.readAllBytes(directory.resolve("a.mp3")), Files.readAllBytes(directory.resolve("b.mp3")));
+    }
+
+    @Test
+    void splitPiecesAddUpToTheSource() throws Exception {
+        Path source = new Mp3Files(126).frames(100, 5, 9).write(directory.resolve("song.mp3"));
+
+        // 26 ms per frame : 20 frames per piece
+        List<Path> pieces = Clipper.split(source.toString(), 20 * 1152 * 1000 / 44100 + 1, directory.resolve("pieces"), false);
+
+        assertEquals(5, pieces.size());
+        assertEquals(directory.resolve("pieces/song-001.mp3"), pieces.get(0));
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (Path piece : pieces) {
+            joined.write(Files.readAllBytes(piece));
+        }
+        assertArrayEquals(Files.readAllBytes(source), joined.toByteArray());
+    }
+
+    private static List<Frame> walk(Path file) {
+        List<Frame> frames = new ArrayList<>();
+        FrameWalker.walk(file.toString()).forEach(frames::add);
+        return frames;
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CrcVerifierTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tablesMatchTheBitwiseCrc() {
+        Random random = new Random(21);
+        byte[] data = new byte[300];
+        random.nextBytes(data);
+
+        for (int from = 0; from < 8; from++) {
+            for (int length = 0; length <= data.length - from; length += from + 1) {
+                int crc = random.nextInt(65536);
+                assertEquals(Mp3Files.bitwiseCrc16(crc, Arrays.copyOfRange(data, from, from + length)),
+                    CrcVerifier.crc16(crc, ByteBuffer.wrap(data), from, length), "from " + from + ", " + length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void framesAreChecked() {
+        byte[] frames = new Mp3Files(22).crcFrame(9, true).crcFrame(9, false).frames(1, 9).toByteArray();
+        int length = HeaderDecoder.frameLength(Mp3Files.header(9, true));
+
+        assertEquals(CrcVerifier.CRC_OK, CrcVerifier.check(ByteBuffer.wrap(frames, 0, length)));
+        assertEquals(CrcVerifier.CRC_MISMATCH, CrcVerifier.check(ByteBuffer.wrap(frames, length, length)));
+        assertEquals(CrcVerifier.CRC_ABSENT, CrcVerifier.check(ByteBuffer.wrap(frames, length * 2, length)));
+    }
+
+    @Test
+    void walkCountsMismatches() {
+        Mp3Files file = new Mp3Files(23);
+        for (int i = 0; i < 50; i++) {
+            file.crcFrame(i % 2 == 0 ? 9 : 11, i % 10 != 3);
+        }
+        WalkSummary summary = FrameWalker.walk(file.write(directory.resolve("crc.mp3")).toString()).summary(true);
+
+        assertEquals(50, summary.crcChecked());
+        assertEquals(5, summary.crcMismatches());
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprinterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tagsAndTheXingFrameAreNotAudio() {
+        Path plain = new Mp3Files(131).frames(300, 5, 9, 14).write(directory.resolve("plain.mp3"));
+        // the same seed : the same frames
+        ByteBuffer xing = ByteBuffer.allocate(417).putInt(Mp3Files.header(9, false));
+        xing.position(4 + 32).put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(1).putInt(300);
+        Path tagged = new Mp3Files(131).id3v2(2000).bytes(xing.array()).frames(300, 5, 9, 14).id3v1()
+            .write(directory.resolve("tagged.mp3"));
+        Path other = new Mp3Files(132).frames(300, 5, 9, 14).write(directory.resolve("other.mp3"));
+
+        Fingerprint fingerprint = Fingerprinter.of(plain.toString(), 16);
+        Fingerprint same = Fingerprinter.of(tagged.toString(), 16);
+
+        assertEquals(300, fingerprint.frames());
+        assertEquals(fingerprint.hash(), same.hash());
+        assertEquals(fingerprint.frames(), same.frames());
+        assertArrayEquals(fingerprint.blocks(), same.blocks());
+        assertNotEquals(fingerprint.hash(), Fingerprinter.of(other.toString(), 16).hash());
+    }
+
+    @Test
+    void aStreamGivesTheSameFingerprint() throws Exception {
+        Path file = new Mp3Files(133).id3v2(700).frames(500, 5, 9, 14).id3v1().write(directory.resolve("stream.mp3"));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Fingerprinter fingerprinter = new Fingerprinter(16);
+        StreamParser parser = new StreamParser(fingerprinter);
+        for (int position = 0; position < bytes.length; position += 1000) {
+            parser.accept(ByteBuffer.wrap(bytes, position, Math.min(1000, bytes.length - position)));
+        }
+        parser.finish();
+
+        Fingerprint walked = Fingerprinter.of(file.toString(), 16);
+        Fingerprint streamed = fingerprinter.fingerprint();
+        assertEquals(walked.hash(), streamed.hash());
+        assertArrayEquals(walked.blocks(), streamed.blocks());
+    }
+
+    @Test
+    void blocksEndWhereTheAudioSays() {
+        Path file = new Mp3Files(134).frames(1000, 5, 9, 14).write(directory.resolve("blocks.mp3"));
+        // rounded down to 8
+        Fingerprint fingerprint = Fingerprinter.of(file.toString(), 12);
+
+        assertArrayEquals(blocks(file, 8), fingerprint.blocks());
+        assertTrue(fingerprint.blocks().length > 1000 / 8 / 2);
+        assertEquals(0, Fingerprinter.of(file.toString(), 0).blocks().length);
+    }
+
+    @Test
+    void aBlockThatNeverEndsIsCut() {
+        // the same frame over and over, with a hash that never ends a block of 8
+        byte[] frame = new byte[417];
+        ByteBuffer.wrap(frame).putInt(Mp3Files.header(9, false));
+        while ((XxHash64.hash(ByteBuffer.wrap(frame, 4, 413)) & 7) == 0) {
+            frame[100]++;
+        }
+        Mp3Files repeated = new Mp3Files(135);
+        for (int i = 0; i < 100; i++) {
+            repeated.bytes(frame);
+        }
+        Path file = repeated.write(directory.resolve("repeated.mp3"));
+
+        Fingerprint fingerprint = Fingerprinter.of(file.toString(), 8);
+
+        // 3 blocks of 8 * 4 frames, and the 4 frames that are left
+        assertEquals(4, fingerprint.blocks().length);
+        assertArrayEquals(blocks(file, 8), fingerprint.blocks());
+        assertEquals(fingerprint.blocks()[0], fingerprint.blocks()[2]);
+    }
+
+    @Test
+    void aClipOverlapsItsSource() {
+        Path source = new Mp3Files(136).frames(3000, 5, 9, 14).write(directory.resolve("source.mp3"));
+        Path clip = directory.resolve("clip.mp3");
+        Clipper.clip(source.toString(), clip, 1000, 2000, true);
+        Path other = new Mp3Files(137).frames(3000, 5, 9, 14).write(directory.resolve("other.mp3"));
+
+        FingerprintIndex index = new FingerprintIndex();
+        for (Path file : List.of(source, clip, other)) {
+            index.add(file.toString(), Fingerprinter.of(file.toString(), 16));
+        }
+
+        assertEquals(List.of(), index.duplicates());
+        List<FingerprintIndex.Overlap> overlaps = index.overlaps(DuplicateFinder.DEFAULT_MIN_SHARED_BLOCKS);
+        assertEquals(1, overlaps.size());
+        FingerprintIndex.Overlap overlap = overlaps.get(0);
+        assertEquals(Set.of(source.toString(), clip.toString()), Set.of(overlap.first(), overlap.second()));
+        // all blocks of the clip but the ones cut at its ends, ~1000 / 16 of them
+        assertTrue(overlap.sharedBlocks() > 40, "shared " + overlap.sharedBlocks());
+    }
+
+    // what the blocks of 'file' are, hashing it frame by frame here
+    private static long[] blocks(Path file, int blockFrames) {
+        List<Long> blocks = new ArrayList<>();
+        XxHash64 block = new XxHash64();
+        int frames = 0;
+        FrameWalker walker = FrameWalker.walk(file.toString());
+        for (Frame frame : walker) {
+            long hash = XxHash64.hash(walker.payload(frame));
+            block.update(hash);
+            frames++;
+            if ((hash & (blockFrames - 1)) == 0 || frames == blockFrames * 4) {
+                blocks.add(block.digest());
+                block.reset();
+                frames = 0;
+            }
+        }
+        if (frames > 0) {
+            blocks.add(block.digest());
+        }
+        return blocks.stream().mapToLong(Long::longValue).toArray();
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameTableTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sameNumbersAsTheSummary() {
+        assertSameAsSummary(new Mp3Files(111).id3v2(500).cbr(400, 9).id3v1().write(directory.resolve("cbr.mp3")));
+        assertSameAsSummary(new Mp3Files(112).frames(400, 1, 5, 9, 14).write(directory.resolve("vbr.mp3")));
+        assertSameAsSummary(new Mp3Files(113).frames(100, 9).junk(1000).frames(100, 5).write(directory.resolve("junk.mp3")));
+
+        // the Xing frame is not a frame of the table
+        ByteBuffer xing = ByteBuffer.allocate(417).putInt(Mp3Files.header(9, false));
+        xing.position(4 + 32).put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(1).putInt(300);
+        Path file = new Mp3Files(114).bytes(xing.array()).frames(300, 5, 9).write(directory.resolve("xing.mp3"));
+        assertSameAsSummary(file);
+        assertEquals(300, FrameTable.build(file.toString()).frames());
+    }
+
+    @Test
+    void columnsHoldWhatTheWalkFound() {
+        Path file = new Mp3Files(115).frames(300, 1, 5, 9, 14).write(directory.resolve("vbr.mp3"));
+        FrameTable table = FrameTable.build(file.toString());
+
+        List<Frame> frames = walk(file);
+        assertEquals(frames.size(), table.frames());
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            assertEquals(frame.offset(), table.offset(i));
+            assertEquals(frame.length(), table.size(i));
+            // the bits the table does not keep : protection, private, mode extension, copyright, original, emphasis
+            assertEquals(frame.header() & ~0x1013F, table.header(i));
+        }
+        assertTrue(table.isVbr());
+    }
+
+    @Test
+    void growsPastTheEstimateOfTheFirstFrame() {
+        // the first frame is 1044 bytes, the rest are 104 : the estimate is ~10 times too small
+        Path file = new Mp3Files(116).frames(1, 14).frames(5000, 1).write(directory.resolve("grows.mp3"));
+        FrameTable table = FrameTable.build(file.toString());
+
+        List<Frame> frames = walk(file);
+        assertEquals(5001, table.frames());
+        assertEquals(frames.get(5000).offset(), table.offset(5000));
+        assertEquals(frames.get(1000).offset(), table.offset(1000));
+        assertSameAsSummary(file);
+
+        // the first frames only, from the same walk
+        FrameTable of = FrameTable.of(FrameWalker.walk(file.toString()).iterator(), 3000);
+        assertEquals(3000, of.frames());
+        assertEquals(frames.get(2999).offset(), of.offset(2999));
+        assertEquals(table.bytes(0, 3000), of.bytes());
+    }
+
+    private static void assertSameAsSummary(Path file) {
+        WalkSummary summary = FrameWalker.walk(file.toString()).summary();
+        FrameTable table = FrameTable.build(file.toString());
+        String name = file.getFileName().toString();
+        assertEquals(summary.frames(), table.frames(), name);
+        assertEquals(summary.bytes(), table.bytes(), name);
+        assertEquals(summary.durationMillis(), table.durationMillis(), name);
+    }
+
+    private static List<Frame> walk(Path file) {
+        List<Frame> frames = new ArrayList<>();
+        FrameWalker.walk(file.toString()).forEach(frames::add);
+        return frames;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.wind57.mp3;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrameWalkerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void walksThatRunOutAreCounted() {
+        String file = new Mp3Files(81).frames(20, 9).write(directory.resolve("one.mp3")).toString();
+        ParserMetrics.Snapshot before = ParserMetrics.snapshot();
+
+        assertEquals(20, FrameWalker.walk(file).summary().frames());
+
+        ParserMetrics.Snapshot after = ParserMetrics.snapshot();
+        assertEquals(1, after.files() - before.files());
+        assertEquals(20, after.headers() - before.headers());
+    }
+
+    @Test
+    void streamsThatStopEarlyAreCountedWhenClosed() {
+        String file = new Mp3Files(82).frames(20, 9).write(directory.resolve("one.mp3")).toString();
+        ParserMetrics.Snapshot before = ParserMetrics.snapshot();
+
+        try (Stream<Frame> frames = FrameWalker.walk(file).stream()) {
+            assertEquals(5, frames.limit(5).count());
+        }
+
+        ParserMetrics.Snapshot after = ParserMetrics.snapshot();
+        assertEquals(1, after.files() - before.files());
+        // the iterator is always one frame ahead
+        assertEquals(6, after.headers() - before.headers());
+    }
+
+    @Test
+    void iteratorsThatStopEarlyAreCountedWhenTheWalkerIsClosed() {
+        String file = new Mp3Files(83).frames(20, 9).write(directory.resolve("one.mp3")).toString();
+        ParserMetrics.Snapshot before = ParserMetrics.snapshot();
+
+        try (FrameWalker walker = FrameWalker.walk(file)) {
+            Iterator<Frame> first = walker.iterator();
+            first.next();
+            Iterator<Frame> all = walker.iterator();
+            while (all.hasNext()) {
+                all.next();
+            }
+            assertEquals(1, ParserMetrics.snapshot().files() - before.files());
+        }
+
+        ParserMetrics.Snapshot after = ParserMetrics.snapshot();
+        assertEquals(2, after.files() - before.files());
+        assertEquals(2 + 20, after.headers() - before.headers());
+
+        // closing it again counts nothing twice
+        FrameWalker.walk(file).close();
+        assertEquals(after, ParserMetrics.snapshot());
+    }
+
+}
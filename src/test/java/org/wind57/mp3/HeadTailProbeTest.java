@@ -0,0 +1,153 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadTailProbeTest {
+
+    // 128 kbps, 44.1 kHz : 417 bytes, 1152 samples
+    private static final int FRAME_LENGTH = 417;
+
+    // 200 of those, padded
+    private static final long AUDIO_END = 200 * 144L * 128_000 / 44100;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void constantBitrateIsEstimatedFromTheBytesOfTheAudio() throws Exception {
+        Path file = new Mp3Files(91).id3v2(100).cbr(500, 9).write(directory.resolve("cbr.mp3"));
+
+        HeadTailProbe.Result result = HeadTailProbe.probe(file).join();
+
+        assertEquals(110, result.probe().offset());
+        assertEquals(110 + 500 * 144L * 128_000 / 44100, result.audioEnd());
+        assertEquals(new HeadTailProbe.Tags(false, false, false, false), result.tags());
+        assertEquals(500, result.frames());
+        assertEquals(500L * 1152 * 1000 / 44100, result.durationMillis());
+        // the same numbers as counting every frame
+        WalkSummary summary = FrameWalker.walk(file.toString()).summary();
+        assertEquals(summary.frames(), result.frames());
+        assertEquals(summary.durationMillis(), result.durationMillis());
+        assertTrue(result.bytesRead() <= HeadTailProbe.HEAD_LENGTH + HeadTailProbe.TAIL_LENGTH);
+        assertTrue(result.bytesRead() < Files.size(file));
+    }
+
+    @Test
+    void tagsAtTheEndAreNotAudio() throws Exception {
+        Path id3v1 = new Mp3Files(92).cbr(200, 9).id3v1().write(directory.resolve("id3v1.mp3"));
+        assertTail(id3v1, AUDIO_END, new HeadTailProbe.Tags(true, false, false, false));
+
+        Path enhanced = new Mp3Files(93).cbr(200, 9).bytes(enhanced()).id3v1().write(directory.resolve("enhanced.mp3"));
+        assertTail(enhanced, AUDIO_END, new HeadTailProbe.Tags(true, true, false, false));
+
+        Path lyrics3 = new Mp3Files(94).cbr(200, 9).bytes(lyrics3("some words")).id3v1()
+            .write(directory.resolve("lyrics3.mp3"));
+        assertTail(lyrics3, AUDIO_END, new HeadTailProbe.Tags(true, false, false, true));
+
+        Path ape = new Mp3Files(95).cbr(200, 9).bytes(ape(40, false)).write(directory.resolve("ape.mp3"));
+        assertTail(ape, AUDIO_END, new HeadTailProbe.Tags(false, false, true, false));
+
+        // APE and Lyrics3 in either order, an APE tag with a header too
+        Path both = new Mp3Files(96).cbr(200, 9).bytes(ape(40, true)).bytes(lyrics3("more words")).id3v1()
+            .write(directory.resolve("both.mp3"));
+        assertTail(both, AUDIO_END, new HeadTailProbe.Tags(true, false, true, true));
+
+        Path reversed = new Mp3Files(97).cbr(200, 9).bytes(lyrics3("more words")).bytes(ape(40, false))
+            .write(directory.resolve("reversed.mp3"));
+        assertTail(reversed, AUDIO_END, new HeadTailProbe.Tags(false, false, true, true));
+    }
+
+    @Test
+    void unpaddedFramesAreRoundedToTheNearestFrame() {
+        // 417 bytes where the bitrate is worth 417.96 : 1000 frames look like 997.7
+        Path file = new Mp3Files(90).frames(1000, 9).write(directory.resolve("unpadded.mp3"));
+
+        assertEquals(998, HeadTailProbe.probe(file).join().frames());
+    }
+
+    @Test
+    void aXingHeaderIsExact() {
+        // the Xing header says 1234 frames, however many bytes follow it
+        ByteBuffer xing = ByteBuffer.allocate(FRAME_LENGTH).putInt(Mp3Files.header(9, false));
+        xing.position(4 + 32).put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(1).putInt(1234);
+        Path file = new Mp3Files(98).id3v2(100).bytes(xing.array()).frames(50, 5, 9, 14).id3v1()
+            .write(directory.resolve("vbr.mp3"));
+
+        HeadTailProbe.Result result = HeadTailProbe.probe(file).join();
+
+        assertTrue(result.probe().hasVbrHeader());
+        assertEquals(VbrHeader.Type.XING, result.probe().vbrHeader().type());
+        assertEquals(1234, result.frames());
+        assertEquals(1234L * 1152 * 1000 / 44100, result.durationMillis());
+        assertTrue(result.tags().id3v1());
+    }
+
+    @Test
+    void tagsBiggerThanTheFirstWindow() throws Exception {
+        Path file = new Mp3Files(99).id3v2(200_000).cbr(300, 9).write(directory.resolve("cover.mp3"));
+
+        HeadTailProbe.Result result = HeadTailProbe.probe(file).join();
+
+        assertEquals(200_010, result.probe().offset());
+        assertEquals(300, result.frames());
+        assertTrue(result.bytesRead() < Files.size(file));
+    }
+
+    @Test
+    void noFrameIsASyncFailure() {
+        Path file = new Mp3Files(100).id3v2(100).bytes(new byte[20_000]).write(directory.resolve("silence.mp3"));
+        long before = ParserMetrics.snapshot().syncFailures();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> HeadTailProbe.probe(file).join());
+
+        assertEquals("Invalid mp3, 'no frame sync found'", e.getCause().getMessage());
+        assertEquals(1, ParserMetrics.snapshot().syncFailures() - before);
+    }
+
+    private static void assertTail(Path file, long audioEnd, HeadTailProbe.Tags tags) {
+        HeadTailProbe.Result result = HeadTailProbe.probe(file).join();
+        assertEquals(tags, result.tags(), file.getFileName().toString());
+        assertEquals(audioEnd, result.audioEnd(), file.getFileName().toString());
+        assertEquals(200, result.frames(), file.getFileName().toString());
+    }
+
+    // 'TAG+' and 223 more bytes, it goes right before an ID3v1 tag
+    private static byte[] enhanced() {
+        byte[] tag = new byte[227];
+        System.arraycopy("TAG+".getBytes(StandardCharsets.ISO_8859_1), 0, tag, 0, 4);
+        return tag;
+    }
+
+    // 'LYRICSBEGIN', one field, the size of those as 6 digits and 'LYRICS200'
+    private static byte[] lyrics3(String lyrics) {
+        String fields = "LYRICSBEGIN" + "LYR" + String.format("%05d", lyrics.length()) + lyrics;
+        return (fields + String.format("%06d", fields.length()) + "LYRICS200").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // 'items' bytes of items and a footer, with a header before the items if 'header' is set
+    private static byte[] ape(int items, boolean header) {
+        ByteBuffer tag = ByteBuffer.allocate((header ? 32 : 0) + items + 32).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = header ? 0x80000000 : 0;
+        if (header) {
+            tag.put("APETAGEX".getBytes(StandardCharsets.ISO_8859_1)).putInt(2000).putInt(items + 32).putInt(1)
+                .putInt(flags | 0x20000000).putLong(0);
+        }
+        tag.position(tag.position() + items);
+        tag.put("APETAGEX".getBytes(StandardCharsets.ISO_8859_1)).putInt(2000).putInt(items + 32).putInt(1)
+            .putInt(flags).putLong(0);
+        return tag.array();
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.wind57.mp3;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HeaderDecoderTest {
+
+    // the tables of the HashMap providers the decoder replaced, as they were :
+    // one row per bitrate index, columns V1 L1, V1 L2, V1 L3, V2 L1, V2 L2, V2 L3
+    private static final String[][] BITRATES = {
+        {"free", "free", "free", "free", "free", "free"},
+        {"32", "32", "32", "32", "8", "8"},
+        {"64", "48", "40", "48", "16", "16"},
+        {"96", "56", "48", "56", "24", "24"},
+        {"128", "64", "56", "64", "32", "32"},
+        {"160", "80", "64", "80", "40", "40"},
+        {"192", "96", "80", "96", "48", "48"},
+        {"224", "112", "96", "112", "56", "56"},
+        {"256", "128", "112", "128", "64", "64"},
+        {"288", "160", "128", "144", "80", "80"},
+        {"320", "192", "160", "160", "96", "96"},
+        {"352", "224", "192", "176", "112", "112"},
+        {"384", "256", "224", "192", "128", "128"},
+        {"416", "320", "256", "224", "144", "144"},
+        {"448", "384", "320", "256", "160", "160"},
+        {"bad", "bad", "bad", "bad", "bad", "bad"}
+    };
+
+    // one row per sample rate index, columns V1, V2, V2.5
+    private static final String[][] RATES = {
+        {"44100 Hz", "22050 Hz", "11025 Hz"},
+        {"48000 Hz", "24000 Hz", "12000 Hz"},
+        {"32000 Hz", "16000 Hz", "8000 Hz"},
+        {"reserve", "reserve", "reserve"}
+    };
+
+    // keyed the way the providers keyed them : index << 5 | V1 (16) or V2 (8) | L1 (4), L2 (2) or L3 (1)
+    private static final Map<Integer, String> BITRATE_MAPPINGS = new HashMap<>();
+
+    // index << 3 | V1 (4), V2 (2) or V2.5 (1)
+    private static final Map<Integer, String> SAMPLE_RATE_MAPPINGS = new HashMap<>();
+
+    static {
+        int[] versionAndLayer = {16 | 4, 16 | 2, 16 | 1, 8 | 4, 8 | 2, 8 | 1};
+        for (int index = 0; index < 16; index++) {
+            for (int column = 0; column < 6; column++) {
+                BITRATE_MAPPINGS.put(index << 5 | versionAndLayer[column], BITRATES[index][column]);
+            }
+        }
+        int[] versions = {4, 2, 1};
+        for (int index = 0; index < 4; index++) {
+            for (int column = 0; column < 3; column++) {
+                SAMPLE_RATE_MAPPINGS.put(index << 3 | versions[column], RATES[index][column]);
+            }
+        }
+    }
+
+    // every combination of the version, layer, protection, bitrate, sample rate and padding bits (20 to 9)
+    @Test
+    void sameAnswersAsTheProviderTables() {
+        for (int bits = 0; bits < 4096; bits++) {
+            int header = 0xFFE00000 | bits << 9;
+            String message = "header " + Integer.toHexString(header);
+
+            assertEquals(baselineKbps(header), HeaderDecoder.kbps(header), message);
+            assertEquals(baselineHz(header), HeaderDecoder.hz(header), message);
+            assertEquals(baselineFrameLength(header), HeaderDecoder.frameLength(header), message);
+            assertEquals(baselineSamplesPerFrame(header), HeaderDecoder.samplesPerFrame(header), message);
+        }
+    }
+
+    @Test
+    void fieldsAreReadFromTheirBits() {
+        // MPEG 1, Layer III, CRC, 128 kbps, 44.1 kHz, padded, mono
+        int header = 0xFFFA92C0;
+
+        assertEquals(AudioVersion.V1, HeaderDecoder.version(header));
+        assertEquals(LayerVersion.L3, HeaderDecoder.layer(header));
+        assertEquals(true, HeaderDecoder.crcProtected(header));
+        assertEquals(1, HeaderDecoder.padding(header));
+        assertEquals(3, HeaderDecoder.channelMode(header));
+        assertEquals(418, HeaderDecoder.frameLength(header));
+    }
+
+    // 0 for 'free', -1 for 'bad' and for 'reserved' version or layer (the providers printed 'NONE' for those)
+    private static int baselineKbps(int header) {
+        int versionMask = versionMask(header, 16, 8, 8);
+        int layerMask = layerMask(header);
+        if (versionMask == 0 || layerMask == 0) {
+            return -1;
+        }
+        String bitrate = BITRATE_MAPPINGS.get(((header >>> 12) & 15) << 5 | versionMask | layerMask);
+        return switch (bitrate) {
+            case "free" -> 0;
+            case "bad" -> -1;
+            default -> Integer.parseInt(bitrate);
+        };
+    }
+
+    private static int baselineHz(int header) {
+        int versionMask = versionMask(header, 4, 2, 1);
+        if (versionMask == 0) {
+            return -1;
+        }
+        String rate = SAMPLE_RATE_MAPPINGS.get(((header >>> 10) & 3) << 3 | versionMask);
+        return "reserve".equals(rate) ? -1 : Integer.parseInt(rate.substring(0, rate.indexOf(' ')));
+    }
+
+    // the FrameLengthProvider formula : it answered -1 where the decoder answers 0
+    private static int baselineFrameLength(int header) {
+        int kbps = baselineKbps(header);
+        int hz = baselineHz(header);
+        if (kbps <= 0 || hz == -1) {
+            return 0;
+        }
+        int bitsPerSecond = kbps * 1000;
+        int padding = (header >>> 9) & 1;
+        return switch (layerMask(header)) {
+            case 4 -> (12 * bitsPerSecond / hz + padding) * 4;
+            case 2 -> 144 * bitsPerSecond / hz + padding;
+            default -> (versionMask(header, 1, 0, 0) == 1 ? 144 : 72) * bitsPerSecond / hz + padding;
+        };
+    }
+
+    // the FrameLengthProvider answer, except for a 'reserved' version : it gave Layer III 576 there,
+    // the decoder says -1, like it does for a 'reserved' layer. no frame of a 'reserved' version has a length
+    private static int baselineSamplesPerFrame(int header) {
+        if (versionMask(header, 1, 1, 1) == 0) {
+            return -1;
+        }
+        return switch (layerMask(header)) {
+            case 4 -> 384;
+            case 2 -> 1152;
+            case 1 -> versionMask(header, 1, 0, 0) == 1 ? 1152 : 576;
+            default -> -1;
+        };
+    }
+
+    // 20 and 19 bits : 11 -> V1, 10 -> V2, 00 -> V2.5, 01 -> reserved (0)
+    private static int versionMask(int header, int v1, int v2, int v25) {
+        return switch ((header >>> 19) & 3) {
+            case 3 -> v1;
+            case 2 -> v2;
+            case 0 -> v25;
+            default -> 0;
+        };
+    }
+
+    // 18 and 17 bits : 11 -> L1 (4), 10 -> L2 (2), 01 -> L3 (1), 00 -> reserved (0)
+    private static int layerMask(int header) {
+        return switch ((header >>> 17) & 3) {
+            case 3 -> 4;
+            case 2 -> 2;
+            case 1 -> 1;
+            default -> 0;
+        };
+    }
+
+}
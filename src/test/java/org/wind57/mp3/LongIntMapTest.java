@@ -0,0 +1,79 @@
+package org.wind57.mp3;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongIntMapTest {
+
+    @Test
+    void growsAndKeepsEverything() {
+        LongIntMap map = new LongIntMap();
+        for (int i = 0; i < 100_000; i++) {
+            map.put(i * 31L, i);
+        }
+
+        assertEquals(100_000, map.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i, map.get(i * 31L));
+        }
+        assertEquals(LongIntMap.MISSING, map.get(-31));
+        assertEquals(LongIntMap.MISSING, map.get(100_000 * 31L));
+    }
+
+    @Test
+    void keysThatWantTheSameSlot() {
+        // keys that all start at the same slot of the first 16, found the way the map mixes them
+        long[] keys = new long[6];
+        int found = 0;
+        for (long key = 0; found < keys.length; key++) {
+            if (slot(key) == slot(0)) {
+                keys[found++] = key;
+            }
+        }
+
+        LongIntMap map = new LongIntMap();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        map.put(keys[2], 42);
+        map.add(keys[4], 10);
+        map.add(1L << 40, 7);
+
+        assertEquals(keys.length + 1, map.size());
+        assertEquals(0, map.get(keys[0]));
+        assertEquals(42, map.get(keys[2]));
+        assertEquals(14, map.get(keys[4]));
+        assertEquals(5, map.get(keys[5]));
+        assertEquals(7, map.get(1L << 40));
+
+        Map<Long, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        assertEquals(Map.of(keys[0], 0, keys[1], 1, keys[2], 42, keys[3], 3, keys[4], 14, keys[5], 5, 1L << 40, 7),
+            entries);
+    }
+
+    @Test
+    void extremeKeys() {
+        LongIntMap map = new LongIntMap();
+        map.put(Long.MIN_VALUE, 1);
+        map.put(Long.MAX_VALUE, 2);
+        map.put(0, 3);
+        map.put(-1, 4);
+
+        assertEquals(1, map.get(Long.MIN_VALUE));
+        assertEquals(2, map.get(Long.MAX_VALUE));
+        assertEquals(3, map.get(0));
+        assertEquals(4, map.get(-1));
+    }
+
+    // the first slot of 'key' in a map of 16 slots
+    private static int slot(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ mixed >>> 32) & 15;
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.wind57.mp3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * builds mp3 files byte by byte : MPEG 1 Layer III frames at 44.1 kHz, joint stereo, with random payloads
+ * (so they are full of bytes that look like frame syncs), and whatever goes around frames in real files.
+ */
+final class Mp3Files {
+
+    // sync, MPEG 1, Layer III, no CRC, 44.1 kHz, joint stereo
+    private static final int HEADER = 0xFFFB0040;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Random random;
+
+    Mp3Files(long seed) {
+        this.random = new Random(seed);
+    }
+
+    static int header(int bitrateIndex, boolean crc) {
+        return (crc ? HEADER & ~65536 : HEADER) | bitrateIndex << 12;
+    }
+
+    /**
+     * 'count' frames, each with a bitrate index picked from 'bitrateIndexes'
+     */
+    Mp3Files frames(int count, int... bitrateIndexes) {
+        for (int i = 0; i < count; i++) {
+            frame(header(bitrateIndexes[random.nextInt(bitrateIndexes.length)], false));
+        }
+        return this;
+    }
+
+    /**
+     * 'count' frames of one bitrate, padded the way an encoder pads them : a frame gets the padding byte whenever
+     * the frames so far are a byte short of what the bitrate is worth
+     */
+    Mp3Files cbr(int count, int bitrateIndex) {
+        int header = header(bitrateIndex, false);
+        // bytes per frame are 144 * bitrate / 44100, not a whole number
+        long perFrame = 144L * HeaderDecoder.kbps(header) * 1000;
+        for (long i = 0; i < count; i++) {
+            boolean padded = (i + 1) * perFrame / 44100 - i * perFrame / 44100 > perFrame / 44100;
+            frame(padded ? header | 0x200 : header);
+        }
+        return this;
+    }
+
+    Mp3Files frame(int header) {
+        byte[] frame = new byte[HeaderDecoder.frameLength(header)];
+        random.nextBytes(frame);
+        ByteBuffer.wrap(frame).putInt(0, header);
+        return bytes(frame);
+    }
+
+    /**
+     * a Layer III frame with a CRC over its side information, 'valid' or off by one bit
+     */
+    Mp3Files crcFrame(int bitrateIndex, boolean valid) {
+        int header = header(bitrateIndex, true);
+        byte[] frame = new byte[HeaderDecoder.frameLength(header)];
+        random.nextBytes(frame);
+        ByteBuffer buffer = ByteBuffer.wrap(frame).putInt(0, header);
+        // the last 2 bytes of the header and the 32 bytes of side information (MPEG 1, not mono)
+        byte[] covered = new byte[2 + 32];
+        buffer.get(2, covered, 0, 2);
+        buffer.get(6, covered, 2, 32);
+        int crc = bitwiseCrc16(0xFFFF, covered);
+        buffer.putShort(4, (short) (valid ? crc : crc ^ 1));
+        return bytes(frame);
+    }
+
+    Mp3Files id3v2(int size) {
+        byte[] tag = new byte[10 + size];
+        ByteBuffer.wrap(tag).put("ID3".getBytes()).put((byte) 4).put((byte) 0).put((byte) 0)
+            .putInt(size & 0x7F | (size << 1) & 0x7F00 | (size << 2) & 0x7F0000 | (size << 3) & 0x7F000000);
+        return bytes(tag);
+    }
+
+    Mp3Files id3v1() {
+        byte[] tag = new byte[128];
+        System.arraycopy("TAG".getBytes(), 0, tag, 0, 3);
+        return bytes(tag);
+    }
+
+    Mp3Files junk(int length) {
+        byte[] junk = new byte[length];
+        random.nextBytes(junk);
+        return bytes(junk);
+    }
+
+    Mp3Files bytes(byte[] more) {
+        bytes.writeBytes(more);
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    Path write(Path path) {
+        try {
+            return Files.write(path, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // one bit at a time, polynomial 0x8005, most significant bit first
+    static int bitwiseCrc16(int crc, byte[] data) {
+        for (byte b : data) {
+            crc ^= (b & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x8005 : crc << 1;
+                crc &= 0xFFFF;
+            }
+        }
+        return crc;
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.wind57.mp3;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelWalkerTest {
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void cleanFile() {
+        assertSameAsSequential(new Mp3Files(1).frames(400, 9).write(directory.resolve("clean.mp3")));
+    }
+
+    @Test
+    void variableBitrate() {
+        assertSameAsSequential(new Mp3Files(2).frames(400, 1, 5, 9, 11, 14).write(directory.resolve("vbr.mp3")));
+    }
+
+    @Test
+    void tagsJunkAndTruncatedFrames() {
+        Mp3Files file = new Mp3Files(3).id3v2(3000).frames(100, 5, 9, 14);
+        for (int i = 0; i < 10; i++) {
+            // a truncated frame : a header and part of its payload
+            file.junk(i * 37 + 1).bytes(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x40}).junk(100)
+                .frames(50, 5, 9, 14);
+        }
+        assertSameAsSequential(file.id3v1().write(directory.resolve("damaged.mp3")));
+    }
+
+    @Test
+    void rangesWithoutASync() {
+        // junk that spans whole ranges, at the start, in the middle and at the end
+        Mp3Files file = new Mp3Files(5).junk(30_000).frames(100, 9).junk(50_000).frames(100, 5, 14).junk(30_000);
+        assertSameAsSequential(file.write(directory.resolve("gaps.mp3")));
+        assertSameAsSequential(new Mp3Files(6).junk(50_000).write(directory.resolve("junk.mp3")));
+    }
+
+    @Test
+    void headersPlantedInPayloads() {
+        Mp3Files file = new Mp3Files(4);
+        for (int i = 0; i < 300; i++) {
+            file.frames(1, 9);
+            if (i % 7 == 0) {
+                // headers of the same stream that do not chain into real frames
+                file.bytes(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x50, 0x40, 0, 0, (byte) 0xFF, (byte) 0xFB});
+            }
+        }
+        assertSameAsSequential(file.write(directory.resolve("planted.mp3")));
+    }
+
+    private static void assertSameAsSequential(Path path) {
+        List<Frame> sequential = new ArrayList<>();
+        FrameWalker.walk(path.toString()).forEach(sequential::add);
+        WalkSummary summary = FrameWalker.walk(path.toString()).summary();
+
+        for (long minRange : new long[]{1024, 4096, 10_000, 65_536}) {
+            ParallelWalker.Frames parallel = ParallelWalker.walk(path.toString(), pool, minRange);
+            List<Frame> frames = new ArrayList<>();
+            for (int i = 0; i < parallel.count(); i++) {
+                frames.add(parallel.get(i));
+            }
+            assertEquals(sequential, frames, "ranges of " + minRange + " bytes");
+            assertEquals(summary, parallel.summary(), "ranges of " + minRange + " bytes");
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.wind57.mp3;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProbeCacheTest {
+
+    private static final ProbeCache.Identity IDENTITY = new ProbeCache.Identity(1000, 5, "(dev=1,ino=2)");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void leastRecentlyUsedGoesFirst() {
+        ProbeCache cache = new ProbeCache(2);
+        cache.put("a", IDENTITY, facts(1, false));
+        cache.put("b", IDENTITY, facts(2, false));
+        cache.get("a", IDENTITY, true);
+        cache.put("c", IDENTITY, facts(3, false));
+
+        assertNull(cache.get("b", IDENTITY, true));
+        assertEquals(facts(1, false), cache.get("a", IDENTITY, true));
+        assertEquals(facts(3, false), cache.get("c", IDENTITY, true));
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void saveAndLoad() {
+        Path store = directory.resolve("probe.cache");
+        ProbeCache cache = new ProbeCache(10);
+        cache.put("a", IDENTITY, facts(1, false));
+        cache.put("b", IDENTITY, new ProbeCache.Facts(1000, 10, 0xFFFB9040, 2, 52, VbrHeader.Type.VBRI, true));
+        cache.put("c", IDENTITY, facts(3, false));
+        cache.get("a", IDENTITY, true);
+        cache.save(store);
+
+        ProbeCache loaded = ProbeCache.load(store, 10);
+        assertEquals(facts(1, false), loaded.get("a", IDENTITY, true));
+        assertEquals(facts(3, false), loaded.get("c", IDENTITY, true));
+        assertEquals(new ProbeCache.Facts(1000, 10, 0xFFFB9040, 2, 52, VbrHeader.Type.VBRI, true),
+            loaded.get("b", IDENTITY, false));
+
+        // 'b' was the least recently used one, it does not fit in a smaller cache
+        ProbeCache smaller = ProbeCache.load(store, 2);
+        assertNull(smaller.get("b", IDENTITY, false));
+        assertNotNull(smaller.get("c", IDENTITY, true));
+        assertNotNull(smaller.get("a", IDENTITY, true));
+    }
+
+    @Test
+    void changedFilesAreStale() throws Exception {
+        Path file = new Mp3Files(71).frames(10, 9).write(directory.resolve("one.mp3"));
+        ProbeCache cache = new ProbeCache(10);
+        ProbeCache.Identity identity = ProbeCache.identity(file);
+        cache.put(file.toString(), identity, facts(10, false));
+
+        assertNotNull(cache.get(file.toString(), ProbeCache.identity(file), true));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(identity.lastModified() - 10_000));
+        assertNull(cache.get(file.toString(), ProbeCache.identity(file), true));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(identity.lastModified()));
+        new Mp3Files(71).frames(11, 9).write(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(identity.lastModified()));
+        assertNotEquals(identity.size(), ProbeCache.identity(file).size());
+        assertNull(cache.get(file.toString(), ProbeCache.identity(file), true));
+    }
+
+    @Test
+    void estimatesAreNotExact() {
+        ProbeCache cache = new ProbeCache(10);
+        cache.put("a", IDENTITY, facts(1, true));
+
+        assertNull(cache.get("a", IDENTITY, true));
+        assertEquals(facts(1, true), cache.get("a", IDENTITY, false));
+    }
+
+    @Test
+    void damagedStoresStartEmpty() throws Exception {
+        Path store = directory.resolve("probe.cache");
+        ProbeCache cache = new ProbeCache(10);
+        cache.put("a", IDENTITY, facts(1, false));
+        cache.put("b", IDENTITY, facts(2, false));
+        cache.save(store);
+        byte[] whole = Files.readAllBytes(store);
+
+        // cut short
+        Files.write(store, Arrays.copyOf(whole, whole.length - 5));
+        assertNull(ProbeCache.load(store, 10).get("a", IDENTITY, true));
+
+        // not a cache
+        Files.writeString(store, "not a probe cache at all");
+        assertNull(ProbeCache.load(store, 10).get("a", IDENTITY, true));
+
+        // a VBR header type that does not exist, in the last byte but one of the last entry
+        byte[] badType = whole.clone();
+        badType[badType.length - 2] = 42;
+        Files.write(store, badType);
+        assertNull(ProbeCache.load(store, 10).get("a", IDENTITY, true));
+
+        // an older version
+        byte[] older = whole.clone();
+        older[7] = 1;
+        Files.write(store, older);
+        assertNull(ProbeCache.load(store, 10).get("a", IDENTITY, true));
+    }
+
+    @Test
+    void failedSavesLeaveNothingBehind() throws Exception {
+        // a non empty directory can't be replaced by the store
+        Path store = Files.createDirectory(directory.resolve("probe.cache"));
+        Files.writeString(store.resolve("file"), "x");
+        ProbeCache cache = new ProbeCache(10);
+        cache.put("a", IDENTITY, facts(1, false));
+
+        assertThrows(UncheckedIOException.class, () -> cache.save(store));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(store), files.toList());
+        }
+    }
+
+    private static ProbeCache.Facts facts(long frames, boolean estimated) {
+        return new ProbeCache.Facts(1000, 0, 0xFFFB9040, frames, frames * 26, null, estimated);
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.wind57.mp3;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeekIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private Path mp3;
+    private List<Frame> frames;
+
+    @BeforeEach
+    void write() {
+        // more than one checkpoint, some junk, frames of every length
+        mp3 = new Mp3Files(31).id3v2(500).frames(150, 1, 5, 9, 14).junk(300).frames(150, 1, 5, 9, 14).id3v1()
+            .write(directory.resolve("seek.mp3"));
+        frames = new ArrayList<>();
+        FrameWalker.walk(mp3.toString()).forEach(frames::add);
+    }
+
+    @Test
+    void offsetsAreTheWalk() {
+        SeekIndex index = SeekIndex.build(mp3.toString());
+
+        assertEquals(frames.size(), index.frames());
+        assertOffsets(index);
+        assertEquals(FrameWalker.walk(mp3.toString()).summary().durationMillis(), index.durationMillis());
+        assertEquals(frames.get(38).offset(), index.offsetOfSample(38 * 1152 + 5));
+        assertEquals(frames.get(frames.size() - 1).offset(), index.offsetOfMillis(Long.MAX_VALUE / 44100));
+    }
+
+    @Test
+    void sidecarRoundTrip() {
+        Path sidecar = directory.resolve("seek.mp3.seek");
+        SeekIndex.build(mp3.toString()).write(sidecar);
+        SeekIndex read = SeekIndex.read(sidecar);
+
+        assertEquals(frames.size(), read.frames());
+        assertOffsets(read);
+    }
+
+    @Test
+    void damagedSidecarIsBuiltAgain() throws Exception {
+        Path sidecar = directory.resolve("seek.mp3.seek");
+        SeekIndex.loadOrBuild(mp3.toString());
+        byte[] whole = Files.readAllBytes(sidecar);
+        Files.write(sidecar, Arrays.copyOf(whole, whole.length / 2));
+
+        assertOffsets(SeekIndex.loadOrBuild(mp3.toString()));
+        assertArrayEquals(whole, Files.readAllBytes(sidecar));
+    }
+
+    @Test
+    void sidecarInItsOwnDirectory() throws Exception {
+        Path indexes = Files.createDirectory(directory.resolve("indexes"));
+        assertOffsets(SeekIndex.loadOrBuild(mp3.toString(), indexes));
+        assertOffsets(SeekIndex.loadOrBuild(mp3.toString(), indexes));
+
+        try (var sidecars = Files.list(indexes)) {
+            assertEquals(1, sidecars.count());
+        }
+        assertTrue(Files.notExists(directory.resolve("seek.mp3.seek")));
+    }
+
+    @Test
+    void emptyIndex() {
+        Path junk = new Mp3Files(32).junk(5000).write(directory.resolve("junk.mp3"));
+        SeekIndex index = SeekIndex.build(junk.toString());
+
+        assertEquals(0, index.frames());
+        assertEquals(0, index.durationMillis());
+        assertEquals(-1, index.offsetOfSample(0));
+        assertEquals(-1, index.offsetOfMillis(1000));
+    }
+
+    // a gap of more than 2 GB between two frames (junk, a huge tag) takes 5 varint bytes
+    @Test
+    void gapsBiggerThanAnInt() throws IOException {
+        Path sidecar = directory.resolve("gap.mp3.seek");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(sidecar))) {
+            // magic, version, size, last modified, samples per frame, Hz, frames, first offset
+            out.writeInt(0x4D503353);
+            out.writeInt(1);
+            out.writeLong(4_000_000_000L);
+            out.writeLong(0);
+            out.writeInt(1152);
+            out.writeInt(44100);
+            out.writeLong(3);
+            out.writeLong(100);
+            byte[] deltas = {(byte) 0xA1, 0x03, (byte) 0x80, (byte) 0xBC, (byte) 0xC1, (byte) 0x96, 0x0B};
+            out.writeInt(deltas.length);
+            out.write(deltas);
+        }
+
+        SeekIndex index = SeekIndex.read(sidecar);
+
+        assertEquals(100 + 417, index.offsetOfFrame(1));
+        assertEquals(100 + 417 + 3_000_000_000L, index.offsetOfFrame(2));
+    }
+
+    @Test
+    void noTemporaryFilesAreLeft() throws Exception {
+        Path indexes = Files.createDirectory(directory.resolve("indexes"));
+        SeekIndex index = SeekIndex.build(mp3.toString());
+        index.write(indexes.resolve("one.seek"));
+        index.write(indexes.resolve("one.seek"));
+
+        try (var files = Files.list(indexes)) {
+            assertEquals(List.of(indexes.resolve("one.seek")), files.toList());
+        }
+    }
+
+    private void assertOffsets(SeekIndex index) {
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(frames.get(i).offset(), index.offsetOfFrame(i), "frame " + i);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamParserTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyChunkSize() {
+        Mp3Files file = new Mp3Files(11).id3v2(700).frames(60, 1, 5, 9, 14).id3v1();
+        List<Frame> walk = walk(file.write(directory.resolve("stream.mp3")));
+        byte[] bytes = file.toByteArray();
+
+        for (int chunk = 1; chunk <= 1500; chunk = chunk < 64 ? chunk + 1 : chunk * 3 / 2) {
+            assertEquals(walk, stream(bytes, chunk), "chunks of " + chunk + " bytes");
+        }
+        assertEquals(walk, stream(bytes, bytes.length), "one chunk");
+    }
+
+    // the same shape as ParallelWalkerTest : a tag, junk, truncated frames, and bytes that look like headers
+    @Test
+    void damagedStreams() {
+        Mp3Files damaged = new Mp3Files(13).id3v2(3000).frames(100, 5, 9, 14);
+        for (int i = 0; i < 10; i++) {
+            damaged.junk(i * 37 + 1).bytes(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x40}).junk(100)
+                .frames(50, 5, 9, 14);
+        }
+        damaged.id3v1();
+
+        Mp3Files planted = new Mp3Files(14);
+        for (int i = 0; i < 300; i++) {
+            planted.frames(1, 9);
+            if (i % 7 == 0) {
+                planted.bytes(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x50, 0x40, 0, 0, (byte) 0xFF, (byte) 0xFB});
+            }
+        }
+
+        // junk first, and a stream that ends inside a frame
+        Mp3Files cut = new Mp3Files(15).junk(500).frames(40, 1, 9, 14).bytes(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90});
+
+        for (Mp3Files file : List.of(damaged, planted, cut)) {
+            List<Frame> walk = walk(file.write(directory.resolve("damaged.mp3")));
+            byte[] bytes = file.toByteArray();
+            for (int chunk = 1; chunk <= 20_000; chunk = chunk < 64 ? chunk + 1 : chunk * 3 / 2) {
+                assertEquals(walk, stream(bytes, chunk), "chunks of " + chunk + " bytes");
+            }
+            assertEquals(walk, stream(bytes, bytes.length), "one chunk");
+        }
+    }
+
+    @Test
+    void aFrameWaitsForTheHeaderAfterIt() {
+        byte[] bytes = new Mp3Files(16).frames(3, 9).toByteArray();
+        int length = HeaderDecoder.frameLength(Mp3Files.header(9, false));
+        List<Frame> frames = new ArrayList<>();
+        StreamParser parser = new StreamParser((offset, header, frame) ->
+            frames.add(new Frame(offset, header, frame.remaining())));
+
+        parser.accept(ByteBuffer.wrap(bytes, 0, length + 3));
+        assertEquals(0, frames.size());
+        parser.accept(ByteBuffer.wrap(bytes, length + 3, 1));
+        assertEquals(1, frames.size());
+        parser.accept(ByteBuffer.wrap(bytes, length + 4, bytes.length - length - 4));
+        assertEquals(2, frames.size());
+        parser.finish();
+        assertEquals(3, frames.size());
+    }
+
+    @Test
+    void payloadsAreHandedOver() {
+        Mp3Files file = new Mp3Files(12).frames(20, 9);
+        byte[] bytes = file.toByteArray();
+
+        StreamParser parser = new StreamParser((offset, header, frame) -> {
+            assertEquals(HeaderDecoder.frameLength(header), frame.remaining());
+            assertEquals(ByteBuffer.wrap(bytes, (int) offset, frame.remaining()), frame);
+        });
+        for (int i = 0; i < bytes.length; i += 7) {
+            parser.accept(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+        }
+        parser.finish();
+    }
+
+    private static List<Frame> walk(Path path) {
+        List<Frame> frames = new ArrayList<>();
+        FrameWalker.walk(path.toString()).forEach(frames::add);
+        return frames;
+    }
+
+    private static List<Frame> stream(byte[] bytes, int chunk) {
+        List<Frame> frames = new ArrayList<>();
+        StreamParser parser = new StreamParser((offset, header, frame) ->
+            frames.add(new Frame(offset, header, frame.remaining())));
+        for (int i = 0; i < bytes.length; i += chunk) {
+            parser.accept(ByteBuffer.wrap(bytes, i, Math.min(chunk, bytes.length - i)));
+        }
+        parser.finish();
+        return frames;
+    }
+
+}
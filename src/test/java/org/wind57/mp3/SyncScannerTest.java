@@ -0,0 +1,40 @@
+package org.wind57.mp3;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SyncScannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void chainEndsAtATrailingTag() {
+        Path path = new Mp3Files(41).frames(3, 9).id3v1().write(directory.resolve("short.mp3"));
+
+        assertEquals(0, FrameProvider.probe(path.toString()).offset());
+        assertEquals(3, FrameWalker.walk(path.toString()).summary().frames());
+    }
+
+    @Test
+    void framesBetweenJunkAndATrailingTag() {
+        Path path = new Mp3Files(42).frames(10, 9).junk(8).frames(2, 9).id3v1().write(directory.resolve("junk.mp3"));
+
+        // the frame before the junk is not followed by a header, it can't be told from a false sync
+        assertEquals(11, FrameWalker.walk(path.toString()).summary().frames());
+    }
+
+    @Test
+    void id3v2TagsAreSkipped() {
+        Path path = new Mp3Files(43).id3v2(1000).id3v2(20).frames(5, 9).write(directory.resolve("tags.mp3"));
+
+        assertEquals(1010 + 30, SyncScanner.audioStart(MappedFile.map(path.toString())));
+        assertEquals(1010 + 30, FrameProvider.probe(path.toString()).offset());
+        assertEquals(Mp3Files.header(9, false), FrameProvider.frame(path.toString()));
+    }
+
+}
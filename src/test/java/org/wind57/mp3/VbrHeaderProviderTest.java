@@ -0,0 +1,163 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VbrHeaderProviderTest {
+
+    // MPEG 1, Layer III, no CRC, 128 kbps, 44.1 kHz : 417 bytes
+    private static final int V1_STEREO = 0xFFFB9040;
+    private static final int V1_MONO = 0xFFFB90C0;
+
+    // MPEG 2, Layer III, no CRC, 64 kbps, 22.05 kHz : 208 bytes
+    private static final int V2_STEREO = 0xFFF38040;
+    private static final int V2_MONO = 0xFFF380C0;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void xingWithLame() {
+        int[] toc = IntStream.range(0, 100).map(i -> i * 2 + 3).toArray();
+        ByteBuffer frame = frame(V1_STEREO);
+        frame.position(4 + 32).put(bytes("Xing")).putInt(1 | 2 | 4 | 8).putInt(1234).putInt(567_890);
+        for (int entry : toc) {
+            frame.put((byte) entry);
+        }
+        // quality, then 'LAME3.100', and 12 bits of delay with 12 bits of padding at 21
+        frame.putInt(57);
+        int lame = frame.position();
+        frame.put(bytes("LAME3.100")).put(lame + 21, new byte[]{0x24, 0x04, (byte) 0xD2});
+
+        VbrHeader vbr = vbr(frame, V1_STEREO);
+
+        assertEquals(VbrHeader.Type.XING, vbr.type());
+        assertEquals(1234, vbr.frames());
+        assertEquals(567_890, vbr.bytes());
+        assertArrayEquals(toc, vbr.toc());
+        assertEquals("LAME3.100", vbr.encoder());
+        assertEquals(576, vbr.encoderDelay());
+        assertEquals(1234, vbr.encoderPadding());
+        assertEquals(1234L * 1152 * 1000 / 44100, vbr.durationMillis(V1_STEREO));
+    }
+
+    @Test
+    void infoWithFramesOnly() {
+        ByteBuffer frame = frame(V1_STEREO);
+        frame.position(4 + 32).put(bytes("Info")).putInt(1).putInt(99);
+
+        VbrHeader vbr = vbr(frame, V1_STEREO);
+
+        assertEquals(VbrHeader.Type.INFO, vbr.type());
+        assertEquals(99, vbr.frames());
+        assertEquals(-1, vbr.bytes());
+        assertNull(vbr.toc());
+        assertNull(vbr.encoder());
+        assertEquals(-1, vbr.encoderDelay());
+    }
+
+    // the Xing header sits after the side information : 32 bytes for MPEG 1 stereo, 17 for MPEG 1 mono
+    // and for MPEG 2 stereo, 9 for MPEG 2 mono
+    @Test
+    void sideInformationLengthDependsOnVersionAndChannels() {
+        int[] headers = {V1_STEREO, V1_MONO, V2_STEREO, V2_MONO};
+        int[] lengths = {32, 17, 17, 9};
+        for (int i = 0; i < headers.length; i++) {
+            for (int length : new int[]{32, 17, 9}) {
+                ByteBuffer frame = frame(headers[i]);
+                frame.position(4 + length).put(bytes("Xing")).putInt(1).putInt(321);
+
+                VbrHeader vbr = vbr(frame, headers[i]);
+                String message = Integer.toHexString(headers[i]) + ", Xing after " + length + " bytes";
+                if (length == lengths[i]) {
+                    assertEquals(321, vbr.frames(), message);
+                } else {
+                    assertNull(vbr, message);
+                }
+            }
+        }
+        assertEquals(576L * 321 * 1000 / 22050, vbr(xing(V2_MONO, 9, 321), V2_MONO).durationMillis(V2_MONO));
+    }
+
+    @Test
+    void vbri() {
+        ByteBuffer frame = frame(V1_STEREO);
+        // id, version, delay, quality, bytes, frames, toc entries, scale, entry size, frames per entry
+        frame.position(4 + 32).put(bytes("VBRI")).putShort((short) 1).putShort((short) 1105).putShort((short) 75)
+            .putInt(4_000_000).putInt(9000).putShort((short) 3).putShort((short) 2).putShort((short) 2)
+            .putShort((short) 3000)
+            .putShort((short) 40_000).putShort((short) 50_000).putShort((short) 60_000);
+
+        VbrHeader vbr = vbr(frame, V1_STEREO);
+
+        assertEquals(VbrHeader.Type.VBRI, vbr.type());
+        assertEquals(9000, vbr.frames());
+        assertEquals(4_000_000, vbr.bytes());
+        assertArrayEquals(new int[]{80_000, 100_000, 120_000}, vbr.toc());
+        assertEquals(3000, vbr.framesPerTocEntry());
+        assertEquals(1105, vbr.encoderDelay());
+        assertEquals(-1, vbr.encoderPadding());
+        assertNull(vbr.encoder());
+    }
+
+    @Test
+    void tocThatDoesNotFitIsLeftOut() {
+        ByteBuffer frame = frame(V2_MONO);
+        frame.position(4 + 9).put(bytes("Xing")).putInt(1 | 2 | 4).putInt(10).putInt(2000);
+
+        VbrHeader vbr = vbr(frame.limit(4 + 9 + 16 + 50), V2_MONO);
+
+        assertEquals(10, vbr.frames());
+        assertEquals(2000, vbr.bytes());
+        assertNull(vbr.toc());
+    }
+
+    @Test
+    void audioFramesHaveNone() {
+        assertNull(vbr(frame(V1_STEREO), V1_STEREO));
+        // Layer II never carries one
+        int layer2 = 0xFFFD9040;
+        assertNull(vbr(xing(layer2, 32, 5), layer2));
+    }
+
+    @Test
+    void probeFindsItAfterTags() {
+        Path path = new Mp3Files(51).id3v2(300).bytes(xing(V1_STEREO, 32, 20).array()).frames(20, 9)
+            .write(directory.resolve("xing.mp3"));
+
+        Probe probe = FrameProvider.probe(path.toString());
+
+        assertEquals(310, probe.offset());
+        assertEquals(20, probe.vbrHeader().frames());
+    }
+
+    private static ByteBuffer xing(int header, int sideInformationLength, int frames) {
+        ByteBuffer frame = frame(header);
+        frame.position(4 + sideInformationLength).put(bytes("Xing")).putInt(1).putInt(frames);
+        return frame;
+    }
+
+    // a frame of zeros after its header
+    private static ByteBuffer frame(int header) {
+        return ByteBuffer.allocate(HeaderDecoder.frameLength(header)).putInt(header);
+    }
+
+    private static VbrHeader vbr(ByteBuffer frame, int header) {
+        ByteBuffer bytes = frame.duplicate().position(0);
+        return VbrHeaderProvider.vbr(new FileWindow(0, bytes.limit(), bytes), 0, header, HeaderDecoder.frameLength(header));
+    }
+
+    private static byte[] bytes(String id) {
+        return id.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
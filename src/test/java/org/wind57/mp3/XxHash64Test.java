@@ -0,0 +1,75 @@
+package org.wind57.mp3;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XxHash64Test {
+
+    @Test
+    void knownVectors() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        assertEquals(0x066ED728FCEEB3BEL, hash("message digest"));
+        assertEquals(0xCFE1F278FA89835CL, hash("abcdefghijklmnopqrstuvwxyz"));
+        assertEquals(0xE04A477F19EE145DL,
+            hash("12345678901234567890123456789012345678901234567890123456789012345678901234567890"));
+    }
+
+    // every tail length : a partial stripe, 8 and 4 byte words, single bytes
+    @Test
+    void lengthsAroundStripes() {
+        byte[] data = sequence(1000);
+        int[] lengths = {1, 3, 4, 7, 8, 31, 32, 33, 63, 64, 100, 1000};
+        long[] expected = {0xA96C7F0CE858BBB7L, 0x56E6957632A487F9L, 0xC60D15B1E3FF8F04L, 0xAFBEFC3D6C6F9A8EL,
+            0x3DA5C7AA269683E0L, 0x4A74F3A1A39AD4A1L, 0x8D57D6A4671CC43DL, 0x62C9FD21ED857664L,
+            0x5C320A0D2707057FL, 0x7BBABBC45729D17EL, 0xEFA0AD2D3E70C151L, 0x99594F4828043D35L};
+        for (int i = 0; i < lengths.length; i++) {
+            assertEquals(expected[i], XxHash64.hash(ByteBuffer.wrap(data, 0, lengths[i])), lengths[i] + " bytes");
+        }
+    }
+
+    @Test
+    void piecesHashLikeTheWhole() {
+        byte[] data = sequence(300);
+        long whole = XxHash64.hash(ByteBuffer.wrap(data));
+        for (int first = 0; first <= data.length; first += 7) {
+            for (int second = first; second <= data.length; second += 13) {
+                XxHash64 hash = new XxHash64();
+                hash.update(ByteBuffer.wrap(data, 0, first));
+                hash.update(ByteBuffer.wrap(data, first, second - first));
+                hash.update(ByteBuffer.wrap(data, second, data.length - second));
+                assertEquals(whole, hash.digest(), "split at " + first + " and " + second);
+            }
+        }
+    }
+
+    @Test
+    void longsAreLittleEndianBytes() {
+        ByteBuffer bytes = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        XxHash64 hash = new XxHash64();
+        for (long value = 1; bytes.hasRemaining(); value *= 0x9E3779B97F4A7C15L) {
+            bytes.putLong(value);
+            hash.update(value);
+        }
+        assertEquals(XxHash64.hash(bytes.flip()), hash.digest());
+    }
+
+    private static long hash(String value) {
+        return XxHash64.hash(ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+}